@@ -0,0 +1,177 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.swing.JLabel;
+
+import brickbreaker.bench.Workload;
+import brickbreaker.bench.Workloads;
+
+/**
+ * BenchmarkWorkloads is the implementation of Workloads with the classes of the game. It has to be
+ * in the default package, like the game, to be able to use them.
+ * @author garychen
+ *
+ */
+public class BenchmarkWorkloads implements Workloads {
+
+    private static final long SEED = 120L; // The seed of all the random sources
+
+    /**
+     * A helper method that creates a field of bricks in the default area of the court with the
+     * given number of bricks spread out evenly.
+     * @param n
+     * @return
+     */
+    private static BrickField board(int n) {
+        BrickField bf = BrickField.forCourt();
+        int rows = GameCourt.BRICK_LOWER_LIMIT / GameCourt.BRICK_HEIGHT;
+        int cols = GameCourt.COURT_WIDTH / GameCourt.BRICK_WIDTH;
+        int step = Math.max(rows * cols / Math.max(n, 1), 1);
+        for (int slot = 0; slot < rows * cols; slot += step) {
+            bf.set(slot % cols, slot / cols, null);
+        }
+        return bf;
+    }
+
+    @Override
+    public Workload circleHitObj() {
+        final Circle c = new Circle(100, 20, GameCourt.CIRCLERADIUS, GameCourt.CIRCLERADIUS,
+                                    GameCourt.CIRCLE_COLOR, 0, -4,
+                                    GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+        final Brick b = new Brick(90, 10, GameCourt.BRICK_WIDTH, GameCourt.BRICK_HEIGHT,
+                                  GameCourt.BRICK_COLOR, null);
+        return new Workload() {
+            public long run() {
+                Direction d = c.hitObj(b);
+                return d == null ? -1 : d.ordinal();
+            }
+        };
+    }
+
+    @Override
+    public Workload circleIsIn() {
+        final Circle c = new Circle(100, 100, GameCourt.CIRCLERADIUS, GameCourt.CIRCLERADIUS,
+                                    GameCourt.CIRCLE_COLOR, 0, -4,
+                                    GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+        return new Workload() {
+            public long run() {
+                Direction d = c.touchRect(300, 10, GameCourt.BRICK_WIDTH, GameCourt.BRICK_HEIGHT);
+                return d == null ? -1 : d.ordinal();
+            }
+        };
+    }
+
+    @Override
+    public Workload circleSweep() {
+        final Circle c = new Circle(100, 60, GameCourt.CIRCLERADIUS, GameCourt.CIRCLERADIUS,
+                                    GameCourt.CIRCLE_COLOR, 0, -40,
+                                    GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+        c.move();
+        return new Workload() {
+            public long run() {
+                return Double.doubleToRawLongBits(
+                        c.sweep(90, 20, GameCourt.BRICK_WIDTH, GameCourt.BRICK_HEIGHT));
+            }
+        };
+    }
+
+    @Override
+    public Workload play(final int bricks) {
+        final GameEngine engine = new GameEngine(new Random(SEED));
+        engine.load(board(bricks));
+        engine.step(GameInput.LAUNCH);
+        final byte[] start = engine.saveState();
+        return new Workload() {
+            public long run() {
+                engine.step(FollowController.follow(engine, 0));
+                return engine.getScore();
+            }
+
+            public void prepare() {
+                // Go back to the start if the game is no longer the same as the start
+                if (engine.getState() != GameState.PLAYING
+                        || engine.getBricks().size() < bricks / 2) {
+                    try {
+                        engine.loadState(start);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public Workload restart() {
+        final GameEngine engine = new GameEngine(new Random(SEED));
+        return new Workload() {
+            public long run() {
+                engine.restart(true);
+                return engine.getBricks().size();
+            }
+        };
+    }
+
+    /**
+     * A helper method that writes a records file with the given number of records
+     * @param path
+     * @param records
+     */
+    private static void writeFile(String path, int records) {
+        Random random = new Random(SEED);
+        try {
+            BufferedWriter bw = new BufferedWriter(new FileWriter(path, false));
+            for (int i = 0; i < records; i++) {
+                bw.write(random.nextInt(8000) + " user" + random.nextInt(100000) + "\n");
+            }
+            bw.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Workload readRecords(final String path, int records) {
+        writeFile(path, records);
+        return new Workload() {
+            public long run() {
+                return new ScoreRecorder(path).getRecords().getScoreCount();
+            }
+        };
+    }
+
+    @Override
+    public Workload writeRecords(final String path, int records) {
+        writeFile(path, records);
+        final ScoreRecorder sr = new ScoreRecorder(path);
+        final Leaderboard leaderboard = sr.getRecords();
+        return new Workload() {
+            public long run() {
+                sr.writeRecords(leaderboard);
+                return leaderboard.size();
+            }
+        };
+    }
+
+    @Override
+    public Workload paint(String path, int bricks) {
+        writeFile(path, 0);
+        final GameCourt court = new GameCourt(new JLabel(), new JLabel(), new JLabel(),
+                                              new JLabel(), new ScoreRecorder(path));
+        court.setSize(GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+        court.load(board(bricks));
+        final BufferedImage image = new BufferedImage(GameCourt.COURT_WIDTH,
+                GameCourt.COURT_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        return new Workload() {
+            public long run() {
+                court.paintComponent(g);
+                return image.getRGB(GameCourt.COURT_WIDTH / 2, GameCourt.COURT_HEIGHT / 2);
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package brickbreaker.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CircleBenchmark measures the collision checks of a single Circle.
+ * @author garychen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CircleBenchmark {
+
+    private Workload hitObj; // Circle.hitObj on a brick it touches
+    private Workload isIn; // The four point check on a rectangle it misses
+    private Workload sweep; // Circle.sweep on a rectangle on its path
+
+    @Setup
+    public void setUp() {
+        Workloads w = Workloads.load();
+        hitObj = w.circleHitObj();
+        isIn = w.circleIsIn();
+        sweep = w.circleSweep();
+    }
+
+    @Benchmark
+    public long hitObj() {
+        return hitObj.run();
+    }
+
+    @Benchmark
+    public long isIn() {
+        return isIn.run();
+    }
+
+    @Benchmark
+    public long sweep() {
+        return sweep.run();
+    }
+}
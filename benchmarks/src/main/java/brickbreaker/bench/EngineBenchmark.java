@@ -0,0 +1,76 @@
+package brickbreaker.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EngineBenchmark measures a tick of the game while playing, on a full board of 600 bricks and on
+ * a sparse board of 60, and the restart of a game with the default bricks.
+ * The game of play goes back to the start before a tick, not during it, so going back is not
+ * measured. It is done before every tick, so play has a state of its own, and restart is not
+ * slowed down by it.
+ * @author garychen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+    /**
+     * PlayState holds the game of play and puts it back to the start before each tick when it
+     * needs to.
+     * @author garychen
+     *
+     */
+    @State(Scope.Thread)
+    public static class PlayState {
+
+        @Param({"600", "60"})
+        public int bricks; // The number of bricks in the court
+
+        private Workload play; // A tick of the game while playing
+
+        @Setup
+        public void setUp() {
+            play = Workloads.load().play(bricks);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            play.prepare();
+        }
+    }
+
+    private Workload restart; // The restart of a game
+
+    @Setup
+    public void setUp() {
+        restart = Workloads.load().restart();
+    }
+
+    @Benchmark
+    public long play(PlayState state) {
+        return state.play.run();
+    }
+
+    @Benchmark
+    public long restart() {
+        return restart.run();
+    }
+}
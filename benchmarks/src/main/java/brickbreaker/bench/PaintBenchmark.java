@@ -0,0 +1,55 @@
+package brickbreaker.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PaintBenchmark measures painting the court into an offscreen image. It runs without a display,
+ * and the court reads its records from a file of its own, not the records of the game.
+ * @author garychen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class PaintBenchmark {
+
+    @Param({"600", "60"})
+    public int bricks; // The number of bricks in the court
+
+    private File recordFile; // The records the court reads
+    private Workload paint; // Painting the court
+
+    @Setup
+    public void setUp() throws IOException {
+        recordFile = File.createTempFile("records-paint", ".txt");
+        paint = Workloads.load().paint(recordFile.getPath(), bricks);
+    }
+
+    @TearDown
+    public void tearDown() {
+        recordFile.delete();
+    }
+
+    @Benchmark
+    public long paint() {
+        return paint.run();
+    }
+}
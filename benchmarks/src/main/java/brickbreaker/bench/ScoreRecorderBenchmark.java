@@ -0,0 +1,65 @@
+package brickbreaker.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ScoreRecorderBenchmark measures reading and writing records files of different sizes.
+ * @author garychen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoreRecorderBenchmark {
+
+    @Param({"1000", "100000"})
+    public int records; // The number of records in the file
+
+    private File readFile; // The file that is read
+    private File writeFile; // The file that is written
+    private Workload read; // Reading the records
+    private Workload write; // Writing the records
+
+    @Setup
+    public void setUp() throws IOException {
+        readFile = File.createTempFile("records-read", ".txt");
+        writeFile = File.createTempFile("records-write", ".txt");
+        Workloads w = Workloads.load();
+        read = w.readRecords(readFile.getPath(), records);
+        write = w.writeRecords(writeFile.getPath(), records);
+    }
+
+    @TearDown
+    public void tearDown() {
+        readFile.delete();
+        writeFile.delete();
+    }
+
+    @Benchmark
+    public long read() {
+        return read.run();
+    }
+
+    @Benchmark
+    public long write() {
+        return write.run();
+    }
+}
@@ -0,0 +1,19 @@
+package brickbreaker.bench;
+
+/**
+ * Workload is a piece of work on the game that is prepared ahead of time, so that a benchmark only
+ * measures the work itself. It returns a number that depends on the work so that the work cannot
+ * be optimized away. Some work changes what it runs on, so prepare puts it back before a run,
+ * outside of what the benchmark measures.
+ * @author garychen
+ *
+ */
+public interface Workload {
+    long run();
+
+    /**
+     * Get ready for the next run. It does nothing unless the work needs it.
+     */
+    default void prepare() {
+    }
+}
@@ -0,0 +1,89 @@
+package brickbreaker.bench;
+
+/**
+ * Workloads creates the workloads that the benchmarks measure.
+ * JMH does not allow a benchmark in the default package, and a class in a package cannot use the
+ * classes of the game, which are all in the default package. So the benchmarks only know about
+ * this interface, and the class BenchmarkWorkloads in the default package implements it with the
+ * classes of the game. It is found by its name once when a benchmark is set up, so the benchmark 
+ * itself only makes a call through an interface.
+ * @author garychen
+ *
+ */
+public interface Workloads {
+
+    /**
+     * The name of the class in the default package that implements this interface
+     */
+    String IMPLEMENTATION = "BenchmarkWorkloads";
+
+    /**
+     * Circle.hitObj on a brick that the circle is touching, in discrete mode
+     * @return
+     */
+    Workload circleHitObj();
+
+    /**
+     * The four point check of Circle against a rectangle that it is not touching
+     * @return
+     */
+    Workload circleIsIn();
+
+    /**
+     * Circle.sweep against a rectangle on the path of the last move
+     * @return
+     */
+    Workload circleSweep();
+
+    /**
+     * One tick of GameEngine.play with the given number of bricks in the court. Its prepare goes
+     * back to the start once the game is no longer like the start.
+     * @param bricks
+     * @return
+     */
+    Workload play(int bricks);
+
+    /**
+     * GameEngine.restart with the default bricks
+     * @return
+     */
+    Workload restart();
+
+    /**
+     * Reading a records file with the given number of records through a new ScoreRecorder
+     * @param path
+     * @param records
+     * @return
+     */
+    Workload readRecords(String path, int records);
+
+    /**
+     * Writing the given number of records through ScoreRecorder.writeRecords
+     * @param path
+     * @param records
+     * @return
+     */
+    Workload writeRecords(String path, int records);
+
+    /**
+     * GameCourt.paintComponent into an offscreen image with the given number of bricks. The court
+     * reads its records from the given path and does not journal them, so the records of the game
+     * are never touched.
+     * @param path
+     * @param bricks
+     * @return
+     */
+    Workload paint(String path, int bricks);
+
+    /**
+     * Load the implementation of this interface.
+     * @return
+     */
+    static Workloads load() {
+        try {
+            return (Workloads) Class.forName(IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load " + IMPLEMENTATION, e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * CircleTest checks the swept collision of the circle against a brick: a fast circle hits a thin
+ * brick instead of jumping over it, the face that is hit is right for each side, and the corners
+ * of the brick are round.
+ * @author garychen
+ *
+ */
+public class CircleTest {
+
+    private static final int SIZE = 20; // The width of the circle, so the radius is 10
+    private static final int BX = 100; // The x-value of the brick
+    private static final int BY = 100; // The y-value of the brick
+    private static final int BW = 30; // The width of the brick
+    private static final int BH = 10; // The height of the brick
+
+    /**
+     * A helper method that returns a swept circle that has just moved from the first position to
+     * the second
+     * @param prevPx
+     * @param prevPy
+     * @param px
+     * @param py
+     * @return
+     */
+    private static Circle moved(int prevPx, int prevPy, int px, int py) {
+        Circle c = new Circle(px, py, SIZE, SIZE, GameCourt.CIRCLE_COLOR, px - prevPx,
+                              py - prevPy, GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+        c.setSwept(true);
+        c.setPrevPosition(prevPx, prevPy);
+        return c;
+    }
+
+    @Test
+    public void fastCircleDoesNotJumpOverThinBrick() {
+        // Moves up 60 pixels in one move, from below the brick to above it
+        Circle c = moved(105, 125, 105, 65);
+        assertNull(c.touchRect(BX, BY, BW, BH)); // Where it ends does not touch the brick
+        assertEquals(Direction.UP, c.hitRect(BX, BY, BW, BH));
+        assertEquals(BY + BH, c.getPy()); // Moved back to where its top touches the bottom
+        assertEquals(105, c.getPx());
+    }
+
+    @Test
+    public void faceOfEachSide() {
+        assertEquals(Direction.UP, moved(105, 130, 105, 100).hitRect(BX, BY, BW, BH));
+        assertEquals(Direction.DOWN, moved(105, 60, 105, 90).hitRect(BX, BY, BW, BH));
+        assertEquals(Direction.RIGHT, moved(50, 95, 90, 95).hitRect(BX, BY, BW, BH));
+        assertEquals(Direction.LEFT, moved(160, 95, 120, 95).hitRect(BX, BY, BW, BH));
+    }
+
+    @Test
+    public void contactTimeIsWhereTheyFirstTouch() {
+        Circle c = moved(50, 95, 90, 95); // The right of the circle reaches the brick at 80
+        assertEquals(0.75, c.sweep(BX, BY, BW, BH), 1e-9);
+    }
+
+    @Test
+    public void circlePassesByCornerOfGrownBox() {
+        // The center passes through the square beside the top left corner, but never comes within
+        // the radius of the corner
+        Circle c = moved(60, 104, 104, 60);
+        assertEquals(-1, c.sweep(BX, BY, BW, BH), 0);
+        assertNull(c.hitRect(BX, BY, BW, BH));
+        assertEquals(104, c.getPx()); // Not moved
+        assertEquals(60, c.getPy());
+    }
+
+    @Test
+    public void circleHitsCorner() {
+        // The center comes within the radius of the top left corner on its way up and right
+        Circle c = moved(60, 110, 110, 60);
+        double t = c.sweep(BX, BY, BW, BH);
+        assertTrue(t > 0 && t < 1);
+        assertEquals(0.4, t, 1e-9); // The center touches at (90, 100), straight left of it
+        assertEquals(Direction.RIGHT, c.getSweptFace());
+    }
+
+    @Test
+    public void noContactWhenAlreadyTouchingOrTooFar() {
+        assertEquals(-1, moved(105, 95, 105, 90).sweep(BX, BY, BW, BH), 0); // Already in
+        assertEquals(-1, moved(105, 200, 105, 150).sweep(BX, BY, BW, BH), 0); // Stops short
+        assertEquals(-1, moved(200, 95, 250, 95).sweep(BX, BY, BW, BH), 0); // Moves away
+    }
+
+    @Test
+    public void brickFieldFindsFirstBrickOnThePath() {
+        BrickField bf = BrickField.forCourt();
+        bf.set(3, 10, null); // x 90 to 120, y 100 to 110
+        bf.set(3, 5, null); // x 90 to 120, y 50 to 60
+        Circle c = moved(95, 125, 95, 25); // Through both rows in one move
+        c.setSwept(false);
+        assertEquals(-1, bf.findHit(c)); // Jumps over both without the sweep
+        c.setSwept(true);
+        assertEquals(10 * bf.getCols() + 3, bf.findHit(c)); // The lower one is touched first
+    }
+}
@@ -0,0 +1,61 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * GameStatsTest checks that the window of frames shown in the court starts again after a pause
+ * and after a reset, so that the frames before them are not counted in it.
+ * @author garychen
+ *
+ */
+public class GameStatsTest {
+
+    private static final long MS = 1000000L; // A millisecond in nanoseconds
+
+    /**
+     * A helper method that records a frame every 10 milliseconds from the given time, and returns
+     * the time after the last one
+     * @param stats
+     * @param start
+     * @param frames
+     * @return
+     */
+    private static long frames(GameStats stats, long start, int frames) {
+        for (int i = 0; i < frames; i++) {
+            stats.recordFrame(start + i * 10 * MS, MS);
+        }
+        return start + frames * 10 * MS;
+    }
+
+    /**
+     * A helper method that returns the frames per second shown in the court
+     * @param stats
+     * @return
+     */
+    private static String fps(GameStats stats) {
+        String text = stats.overlayText();
+        return text.substring(text.lastIndexOf("ms") + 2).trim();
+    }
+
+    @Test
+    public void windowStartsAgainAfterPause() {
+        GameStats stats = new GameStats(25);
+        long t = frames(stats, MS, 50); // Half of a window
+        stats.pause();
+        // A minute later, one full window at 100 frames per second
+        frames(stats, t + 60000 * MS, 101);
+        assertEquals("100 fps", fps(stats));
+    }
+
+    @Test
+    public void windowStartsAgainAfterReset() {
+        GameStats stats = new GameStats(25);
+        long t = frames(stats, MS, 150);
+        assertEquals("100 fps", fps(stats));
+        stats.reset();
+        assertEquals("0 fps", fps(stats));
+        // The window only counts the frames from the reset on
+        frames(stats, t, 101);
+        assertEquals("100 fps", fps(stats));
+    }
+}
@@ -0,0 +1,115 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * KeyQueueTest checks that the keys come out of the KeyQueue in the order they are put in, also
+ * after the ring wraps around many times, and that a key released is never dropped when the
+ * queue is full.
+ * @author garychen
+ *
+ */
+public class KeyQueueTest {
+
+    /**
+     * A helper method that takes the first key and checks that it is the given key
+     * @param q
+     * @param nanos
+     * @param keyCode
+     * @param pressed
+     */
+    private static void take(KeyQueue q, long nanos, int keyCode, boolean pressed) {
+        assertFalse(q.isEmpty());
+        assertEquals(nanos, q.peekTime());
+        assertEquals(keyCode, q.peekKeyCode());
+        assertEquals(pressed, q.peekPressed());
+        q.remove();
+    }
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        KeyQueue q = new KeyQueue(5);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(q.offer(i, i, true));
+        }
+        assertFalse(q.offer(8, 8, true));
+    }
+
+    @Test
+    public void wrapAround() {
+        KeyQueue q = new KeyQueue(4);
+        long put = 0;
+        long taken = 0;
+        for (int round = 0; round < 10000; round++) {
+            int n = 1 + round % 4; // Different numbers each time, so the ends meet everywhere
+            for (int i = 0; i < n; i++, put++) {
+                assertTrue(q.offer(put, (int) put, put % 3 != 0));
+            }
+            for (int i = 0; i < n; i++, taken++) {
+                take(q, taken, (int) taken, taken % 3 != 0);
+            }
+            assertTrue(q.isEmpty());
+        }
+    }
+
+    @Test
+    public void releaseIsKeptWhenFull() {
+        KeyQueue q = new KeyQueue(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(q.offer(i, 37, true));
+        }
+        assertFalse(q.offer(4, 39, true)); // A press is dropped
+        assertTrue(q.offer(5, 37, false)); // A release is kept as the late key
+        assertFalse(q.offer(6, 39, true)); // Nothing goes after the late key
+        assertTrue(q.offer(7, 39, false)); // And a release is merged into it
+        for (int i = 0; i < 4; i++) {
+            take(q, i, 37, true);
+        }
+        take(q, 5, 37, false);
+        assertTrue(q.isEmpty());
+        assertTrue(q.offer(8, 39, true)); // The ring is used again once the late key is taken
+        take(q, 8, 39, true);
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void lateKeyComesAfterTheRingEvenWhileTaking() {
+        KeyQueue q = new KeyQueue(2);
+        assertTrue(q.offer(0, 1, true));
+        assertTrue(q.offer(1, 2, true));
+        take(q, 0, 1, true);
+        assertTrue(q.offer(2, 3, true)); // Fills the place just given back
+        assertTrue(q.offer(3, 4, false)); // Late
+        assertFalse(q.offer(4, 5, true));
+        take(q, 1, 2, true);
+        take(q, 2, 3, true);
+        take(q, 3, 4, false);
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void twoThreadsKeepTheOrder() throws InterruptedException {
+        final KeyQueue q = new KeyQueue(16);
+        final int n = 200000;
+        Thread putter = new Thread(new Runnable() {
+            public void run() {
+                for (int i = 0; i < n; i++) {
+                    while (!q.offer(i, i, true)) {
+                        Thread.yield(); // The taker is behind
+                    }
+                }
+            }
+        });
+        putter.start();
+        for (int i = 0; i < n; i++) {
+            while (q.isEmpty()) {
+                Thread.yield();
+            }
+            take(q, i, i, true);
+        }
+        putter.join();
+        assertTrue(q.isEmpty());
+    }
+}
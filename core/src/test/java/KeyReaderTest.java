@@ -0,0 +1,75 @@
+import static org.junit.Assert.assertEquals;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * KeyReaderTest checks that a key takes effect on the tick it comes in, however late in the tick
+ * it is, and that the keys after the end of the tick wait for the next one.
+ * @author garychen
+ *
+ */
+public class KeyReaderTest {
+
+    private static final long TICK = 40000000L; // The length of a tick in nanoseconds
+
+    @Test
+    public void pressLateInTickMovesOnThatTick() {
+        KeyQueue q = new KeyQueue(16);
+        KeyReader reader = new KeyReader(q, null);
+        q.offer(TICK - 1, KeyEvent.VK_LEFT, true); // Just before the end of the first tick
+        assertEquals(GameInput.LEFT, reader.read(TICK));
+        assertEquals(GameInput.LEFT, reader.read(2 * TICK)); // Still held
+        q.offer(2 * TICK + TICK * 9 / 10, KeyEvent.VK_LEFT, false);
+        assertEquals(GameInput.NONE, reader.read(3 * TICK));
+    }
+
+    @Test
+    public void keyAfterEndOfTickWaits() {
+        KeyQueue q = new KeyQueue(16);
+        KeyReader reader = new KeyReader(q, null);
+        q.offer(TICK + 1, KeyEvent.VK_RIGHT, true);
+        assertEquals(GameInput.NONE, reader.read(TICK));
+        assertEquals(GameInput.RIGHT, reader.read(2 * TICK));
+    }
+
+    @Test
+    public void tapWithinTickStillMoves() {
+        KeyQueue q = new KeyQueue(16);
+        KeyReader reader = new KeyReader(q, null);
+        q.offer(TICK / 4, KeyEvent.VK_RIGHT, true);
+        q.offer(TICK / 2, KeyEvent.VK_RIGHT, false);
+        assertEquals(GameInput.RIGHT, reader.read(TICK));
+        assertEquals(GameInput.NONE, reader.read(2 * TICK));
+    }
+
+    @Test
+    public void keyHeldAtEndWins() {
+        KeyQueue q = new KeyQueue(16);
+        KeyReader reader = new KeyReader(q, null);
+        q.offer(1, KeyEvent.VK_LEFT, true);
+        q.offer(TICK - 1, KeyEvent.VK_RIGHT, true);
+        assertEquals(GameInput.RIGHT, reader.read(TICK));
+    }
+
+    @Test
+    public void launchAndOtherKeys() {
+        KeyQueue q = new KeyQueue(16);
+        final List<Integer> others = new ArrayList<Integer>();
+        KeyReader reader = new KeyReader(q, new KeyReader.Listener() {
+            public void keyPressed(int keyCode) {
+                others.add(keyCode);
+            }
+        });
+        q.offer(1, KeyEvent.VK_LEFT, true);
+        q.offer(TICK - 1, KeyEvent.VK_SPACE, true);
+        q.offer(TICK - 1, KeyEvent.VK_F3, true);
+        assertEquals(GameInput.LAUNCH, reader.read(TICK));
+        assertEquals(1, others.size());
+        assertEquals(KeyEvent.VK_F3, (int) others.get(0));
+        assertEquals(GameInput.LEFT, reader.read(2 * TICK)); // The arrow is still held
+    }
+}
@@ -0,0 +1,179 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * LeaderboardFileTest checks that both formats of the LeaderboardFile give back the records they
+ * are written from, and that the text parser takes exactly the lines ScoreRecorder.RECORD_REGEX
+ * takes. The scores of the endless mode can be much higher than the scores of a single board, so
+ * the records include scores up to the highest one that can be kept.
+ * @author garychen
+ *
+ */
+public class LeaderboardFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A helper method that returns a leaderboard of random records, including the lowest and the
+     * highest score that can be kept
+     * @param n
+     * @return
+     */
+    private static Leaderboard randomRecords(int n) {
+        Random random = new Random(16);
+        Leaderboard records = new Leaderboard();
+        records.add(0, "lowest");
+        records.add(LeaderboardFile.MAX_SCORE - 1, "highest");
+        records.add(8000, "oldlimit"); // Above what the 4 digits and the shorts used to keep
+        records.add(32768, "short");
+        records.add(65536, "ushort");
+        for (int i = 0; i < n; i++) {
+            records.add(random.nextInt(LeaderboardFile.MAX_SCORE), "user_" + random.nextInt(500));
+        }
+        return records;
+    }
+
+    /**
+     * A helper method that reads the given file into a new leaderboard
+     * @param file
+     * @param appended
+     * @return
+     * @throws IOException
+     */
+    private static Leaderboard read(File file, boolean appended) throws IOException {
+        Leaderboard records = new Leaderboard();
+        LeaderboardFile.read(file, records, appended);
+        return records;
+    }
+
+    @Test
+    public void textRoundTrip() throws IOException {
+        Leaderboard records = randomRecords(2000);
+        File file = folder.newFile("records.txt");
+        ScoreRecorder.writeScores(file, records, false);
+        assertEquals(records.asMap(), read(file, false).asMap());
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        Leaderboard records = randomRecords(2000);
+        File file = folder.newFile("records" + LeaderboardFile.BINARY_EXTENSION);
+        ScoreRecorder.writeScores(file, records, false);
+        assertEquals(LeaderboardFile.MAGIC,
+                     ByteBuffer.wrap(Files.readAllBytes(file.toPath())).getInt());
+        assertEquals(records.asMap(), read(file, false).asMap());
+    }
+
+    @Test
+    public void textParserTakesExactlyTheLinesOfTheRegex() throws IOException {
+        String[] lines = {
+            "12 bob", "0 a", "1234 abcdefghij", "12\tbob", "12  bob", "12345 bob", "abc bob",
+            "12 bo-b", "12 abcdefghijk", " 12 bob", "12 bob ", "12", "12 ", " bob", "", "-5 bob",
+            "7 Under_Sc9", "7 Under_Score9", "12 béb", "999999999 big", "1234567890 toolong",
+        };
+        File file = folder.newFile("records.txt");
+        StringBuilder text = new StringBuilder();
+        Leaderboard expected = new Leaderboard();
+        for (String line : lines) {
+            text.append(line).append('\n');
+            if (line.matches(ScoreRecorder.RECORD_REGEX)) {
+                String[] parts = line.split(" ");
+                expected.add(Integer.parseInt(parts[0]), parts[1]);
+            }
+        }
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        Leaderboard parsed = read(file, false);
+        assertEquals(expected.asMap(), parsed.asMap());
+        assertEquals(6, parsed.size());
+    }
+
+    @Test
+    public void textParserSkipsImpossibleScoresAndCutLastLine() throws IOException {
+        File file = folder.newFile("records.txt");
+        String text = LeaderboardFile.MAX_SCORE + " toohigh\r\n10 windows\r\n20 cut";
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+        Leaderboard appended = read(file, true);
+        assertEquals(1, appended.size());
+        assertTrue(appended.getNames(10).contains("windows"));
+        assertEquals(2, read(file, false).size()); // Not being appended, so the last line is taken
+    }
+
+    @Test
+    public void scoresThatCannotBeKeptAreRefused() throws IOException {
+        Leaderboard records = new Leaderboard();
+        int[] bad = {-1, LeaderboardFile.MAX_SCORE, Integer.MAX_VALUE};
+        for (int score : bad) {
+            try {
+                records.add(score, "bob");
+                fail("Score " + score + " should be refused");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        File file = folder.newFile("records.txt");
+        ScoreRecorder recorder = new ScoreRecorder(file.getPath(), true, false);
+        assertFalse(recorder.submit(LeaderboardFile.MAX_SCORE, "bob"));
+        assertTrue(recorder.submit(LeaderboardFile.MAX_SCORE - 1, "bob"));
+        recorder.writeRecords(recorder.getRecords());
+        Leaderboard journaled = new Leaderboard();
+        LeaderboardFile.read(new File(file.getPath() + ScoreJournal.JOURNAL_SUFFIX), journaled,
+                             true);
+        assertEquals(1, journaled.size());
+        assertTrue(journaled.getNames(LeaderboardFile.MAX_SCORE - 1).contains("bob"));
+    }
+
+    @Test
+    public void binaryWithImpossibleScoreIsBroken() throws IOException {
+        File file = folder.newFile("broken" + LeaderboardFile.BINARY_EXTENSION);
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(LeaderboardFile.MAGIC);
+            out.writeInt(LeaderboardFile.VERSION);
+            out.writeInt(1);
+            out.writeInt(1);
+            out.writeInt(-1);
+            out.writeInt(1);
+            out.writeByte(3);
+            out.writeBytes("bob");
+        } finally {
+            out.close();
+        }
+        try {
+            read(file, false);
+            fail("A negative score should not be read");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void binaryCutShortIsBroken() throws IOException {
+        File file = folder.newFile("records" + LeaderboardFile.BINARY_EXTENSION);
+        LeaderboardFile.writeBinary(file, randomRecords(10), false);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 2));
+        try {
+            read(file, false);
+            fail("A file cut short should not be read");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * LevelCacheTest checks that a level is found again by its bricks, that different bricks are not
+ * found, and that the level used the longest time ago is removed first when the levels do not fit.
+ * @author garychen
+ *
+ */
+public class LevelCacheTest {
+
+    /**
+     * A helper method that returns a field of the court with a brick in each of the given columns
+     * of the first row
+     * @param cols
+     * @return
+     */
+    private static BrickField level(int... cols) {
+        BrickField bf = BrickField.forCourt();
+        for (int col : cols) {
+            bf.set(col, 0, null);
+        }
+        return bf;
+    }
+
+    @Test
+    public void hitAndMiss() {
+        LevelCache cache = new LevelCache(Long.MAX_VALUE);
+        assertNull(cache.get(level(1)));
+        LevelCache.Level kept = cache.put(level(1), null);
+        assertSame(kept, cache.get(level(1)));
+        assertNull(cache.get(level(2)));
+        assertNull(cache.get(level(1, 2)));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertTrue(kept.matches(level(1)));
+        assertFalse(kept.matches(level(2)));
+    }
+
+    @Test
+    public void newFieldIsACopy() {
+        LevelCache cache = new LevelCache(Long.MAX_VALUE);
+        LevelCache.Level kept = cache.put(level(3), null);
+        BrickField played = kept.newField();
+        played.remove(3);
+        assertTrue(kept.matches(level(3)));
+        assertTrue(kept.newField().isAlive(3));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        LevelCache probe = new LevelCache(Long.MAX_VALUE);
+        probe.put(level(0), null);
+        long one = probe.getBytes();
+        LevelCache cache = new LevelCache(one * 2 + one / 2); // Room for two levels
+        cache.put(level(1), null);
+        cache.put(level(2), null);
+        assertNotNull(cache.get(level(1))); // Level 2 is now the least recently used
+        cache.put(level(3), null);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(level(2)));
+        assertNotNull(cache.get(level(1)));
+        assertNotNull(cache.get(level(3)));
+        assertEquals(one * 2, cache.getBytes());
+    }
+
+    @Test
+    public void newLevelIsKeptEvenIfTooLarge() {
+        LevelCache cache = new LevelCache(1);
+        cache.put(level(1), null);
+        cache.put(level(2), null);
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(level(2)));
+    }
+}
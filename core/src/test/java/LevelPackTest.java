@@ -0,0 +1,152 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * LevelPackTest checks that a level comes back the same from the packed form of the BrickField,
+ * from a pack that is written at once, and from a pack that levels are appended to.
+ * @author garychen
+ *
+ */
+public class LevelPackTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A helper method that returns a field of the given size with random bricks and super powers
+     * @param cols
+     * @param rows
+     * @param random
+     * @return
+     */
+    private static BrickField randomField(int cols, int rows, Random random) {
+        BrickField bf = new BrickField(cols, rows);
+        SuperPower[] powers = SuperPower.values();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (random.nextInt(3) == 0) {
+                    int ran = random.nextInt(8);
+                    bf.set(c, r, ran < powers.length ? powers[ran] : null);
+                }
+            }
+        }
+        return bf;
+    }
+
+    /**
+     * A helper method that checks that the two fields have the same size and the same bricks
+     * @param expected
+     * @param actual
+     */
+    private static void assertSameBricks(BrickField expected, BrickField actual) {
+        assertEquals(expected.getCols(), actual.getCols());
+        assertEquals(expected.getRows(), actual.getRows());
+        assertTrue(expected.sameBricks(actual));
+    }
+
+    @Test
+    public void packedRoundTrip() throws IOException {
+        Random random = new Random(19);
+        int[][] sizes = {{1, 1}, {7, 3}, {20, 60}, {333, 17}};
+        for (int[] size : sizes) {
+            BrickField bf = randomField(size[0], size[1], random);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bf.writePacked(new DataOutputStream(bytes));
+            assertEquals(bf.packedSize(), bytes.size());
+            ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+            assertSameBricks(bf, BrickField.readPacked(in));
+            assertEquals(bytes.size(), in.position());
+        }
+    }
+
+    @Test
+    public void packedCutShortIsBroken() throws IOException {
+        BrickField bf = randomField(20, 60, new Random(190));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bf.writePacked(new DataOutputStream(bytes));
+        byte[] cut = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+        try {
+            BrickField.readPacked(ByteBuffer.wrap(cut));
+            fail("A level cut short should not be read");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void writeAndGet() throws IOException {
+        Random random = new Random(1900);
+        List<BrickField> levels = new ArrayList<BrickField>();
+        for (int i = 0; i < 50; i++) {
+            levels.add(randomField(20 + i, 60, random));
+        }
+        File file = new File(folder.getRoot(), "levels.bblp");
+        LevelPack.write(file, levels, false);
+        LevelPack pack = new LevelPack(file);
+        assertEquals(levels.size(), pack.size());
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            assertSameBricks(levels.get(i), pack.get(i));
+        }
+    }
+
+    @Test
+    public void appendKeepsEveryLevel() throws IOException {
+        Random random = new Random(19000);
+        File file = new File(folder.getRoot(), "levels.bblp");
+        List<BrickField> levels = new ArrayList<BrickField>();
+        for (int i = 0; i < 20; i++) {
+            BrickField bf = randomField(1 + random.nextInt(100), 1 + random.nextInt(100), random);
+            assertEquals(i, LevelPack.append(file, bf));
+            levels.add(bf);
+        }
+        LevelPack pack = new LevelPack(file);
+        assertEquals(levels.size(), pack.size());
+        for (int i = 0; i < levels.size(); i++) {
+            assertSameBricks(levels.get(i), pack.get(i));
+        }
+        assertNoTemporaryFile(file);
+    }
+
+    /**
+     * A helper method that checks that no temporary file is left next to the pack
+     * @param file
+     */
+    private static void assertNoTemporaryFile(File file) {
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void notAPackIsRefused() throws IOException {
+        File file = folder.newFile("levels.bblp");
+        Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+        try {
+            new LevelPack(file);
+            fail("Not a pack");
+        } catch (IOException e) {
+            // Expected
+        }
+        try {
+            LevelPack.append(file, BrickField.forCourt());
+            fail("Not a pack");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * RankIndexTest checks the counts and the kth lowest record of the RankIndex, and the rank and
+ * percentile of the Leaderboard, against a sorted list of the same scores.
+ * @author garychen
+ *
+ */
+public class RankIndexTest {
+
+    /**
+     * A helper method that returns the number of scores in the sorted list no higher than the
+     * given score
+     * @param sorted
+     * @param score
+     * @return
+     */
+    private static long countAtMost(List<Integer> sorted, int score) {
+        int lo = 0;
+        int hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted.get(mid) <= score) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * A helper method that adds the given scores to a new index and checks it against the sorted
+     * list of them
+     * @param scores
+     */
+    private static void checkAgainstSortedList(List<Integer> scores) {
+        RankIndex index = new RankIndex();
+        for (int score : scores) {
+            index.add(score);
+        }
+        List<Integer> sorted = new ArrayList<Integer>(scores);
+        Collections.sort(sorted);
+        assertEquals(sorted.size(), index.size());
+        for (int k = 1; k <= sorted.size(); k++) {
+            assertEquals((int) sorted.get(k - 1), index.lowest(k));
+        }
+        List<Integer> probes = new ArrayList<Integer>(sorted);
+        Collections.addAll(probes, -1, 0, 1, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                           RankIndex.MAX_SCORE, RankIndex.MAX_SCORE - 1);
+        for (int score : sorted) {
+            probes.add(score - 1);
+            probes.add(score + 1);
+        }
+        for (int score : probes) {
+            long atMost = countAtMost(sorted, score);
+            assertEquals("at most " + score, atMost, index.countAtMost(score));
+            assertEquals("above " + score, sorted.size() - atMost, index.countAbove(score));
+        }
+    }
+
+    @Test
+    public void smallScores() {
+        Random random = new Random(17);
+        List<Integer> scores = new ArrayList<Integer>();
+        for (int i = 0; i < 3000; i++) {
+            scores.add(random.nextInt(100));
+        }
+        checkAgainstSortedList(scores);
+    }
+
+    @Test
+    public void largeAndBoundaryScores() {
+        Random random = new Random(170);
+        List<Integer> scores = new ArrayList<Integer>();
+        Collections.addAll(scores, 0, 0, 1, 8191, 8192, 32767, 32768, 65536, 100000000,
+                           1 << 29, RankIndex.MAX_SCORE - 1, RankIndex.MAX_SCORE,
+                           RankIndex.MAX_SCORE);
+        for (int i = 0; i < 2000; i++) {
+            scores.add(random.nextInt(RankIndex.MAX_SCORE) + 1);
+        }
+        checkAgainstSortedList(scores);
+    }
+
+    @Test
+    public void emptyIndex() {
+        RankIndex index = new RankIndex();
+        assertEquals(0, index.countAtMost(RankIndex.MAX_SCORE));
+        assertEquals(0, index.countAbove(-1));
+        try {
+            index.lowest(1);
+            fail("There is no record");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void scoresOutOfRangeAreRefused() {
+        RankIndex index = new RankIndex();
+        int[] bad = {-1, Integer.MIN_VALUE, RankIndex.MAX_SCORE + 1, Integer.MAX_VALUE};
+        for (int score : bad) {
+            try {
+                index.add(score);
+                fail("Score " + score + " should be refused");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void concurrentAdds() throws InterruptedException {
+        final RankIndex index = new RankIndex();
+        final int perThread = 20000;
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < perThread; i++) {
+                        index.add(random.nextInt(50)); // Many threads add the same scores
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        List<Integer> scores = new ArrayList<Integer>();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            Random random = new Random(t);
+            for (int i = 0; i < perThread; i++) {
+                scores.add(random.nextInt(50));
+            }
+        }
+        Collections.sort(scores);
+        for (int score = -1; score <= 50; score++) {
+            assertEquals(countAtMost(scores, score), index.countAtMost(score));
+        }
+    }
+
+    @Test
+    public void leaderboardRankAndPercentile() {
+        Random random = new Random(1700);
+        Leaderboard board = new Leaderboard();
+        List<Integer> scores = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            int score = random.nextInt(5000);
+            if (board.getNames(score).isEmpty()) { // One record for each score
+                board.add(score, "u" + i);
+                scores.add(score);
+            }
+        }
+        Collections.sort(scores);
+        int n = scores.size();
+        for (int score = -1; score <= 5001; score += 7) {
+            int rank = (int) (n - countAtMost(scores, score)) + 1;
+            assertEquals(rank, board.getRank(score));
+            assertEquals(Math.min(100.0 * rank / n, 100), board.getPercentile(rank), 1e-9);
+        }
+        assertEquals(scores.get(n - 1).intValue(), board.getPage(0, 1).get(0).getScore());
+        assertEquals(scores.get(0).intValue(), board.getPage(n - 1, 1).get(0).getScore());
+    }
+}
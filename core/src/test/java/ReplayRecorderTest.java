@@ -0,0 +1,74 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ReplayRecorderTest checks that prune keeps only the newest replays in the folder and leaves
+ * every other file alone.
+ * @author garychen
+ *
+ */
+public class ReplayRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A helper method that creates an empty replay saved at the given time
+     * @param time
+     * @return
+     * @throws IOException
+     */
+    private File replay(long time) throws IOException {
+        return folder.newFile("replay-" + time + ".bbr");
+    }
+
+    @Test
+    public void oldestReplaysAreDeleted() throws IOException {
+        File[] replays = new File[5];
+        for (int i = 0; i < replays.length; i++) {
+            replays[i] = replay(1000 + i);
+        }
+        assertEquals(2, ReplayRecorder.prune(folder.getRoot(), 3));
+        assertFalse(replays[0].exists());
+        assertFalse(replays[1].exists());
+        for (int i = 2; i < replays.length; i++) {
+            assertTrue(replays[i].exists());
+        }
+    }
+
+    @Test
+    public void replaysAreOrderedByTimeNotByName() throws IOException {
+        File older = replay(999);
+        File newer = replay(1000); // Before the older one by name
+        assertEquals(1, ReplayRecorder.prune(folder.getRoot(), 1));
+        assertFalse(older.exists());
+        assertTrue(newer.exists());
+    }
+
+    @Test
+    public void otherFilesAreKept() throws IOException {
+        File other = folder.newFile("notes.txt");
+        File renamed = folder.newFile("replay-old.bbr");
+        replay(1);
+        assertEquals(1, ReplayRecorder.prune(folder.getRoot(), 0));
+        assertTrue(other.exists());
+        assertTrue(renamed.exists());
+    }
+
+    @Test
+    public void nothingIsDeletedUnderTheLimit() throws IOException {
+        replay(1);
+        replay(2);
+        assertEquals(0, ReplayRecorder.prune(folder.getRoot(), 2));
+        assertEquals(0, ReplayRecorder.prune(new File(folder.getRoot(), "missing"), 0));
+        assertEquals(2, folder.getRoot().listFiles().length);
+    }
+}
@@ -0,0 +1,128 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ScoreJournalTest checks that merging the journal into the records file never loses a record,
+ * and keeps the format of the records file.
+ * @author garychen
+ *
+ */
+public class ScoreJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A helper method that writes a binary records file of a version that cannot be read
+     * @param file
+     * @throws IOException
+     */
+    private static void writeUnreadable(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(LeaderboardFile.MAGIC);
+            out.writeInt(99);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * A helper method that writes the given text into the given file
+     * @param file
+     * @param text
+     * @throws IOException
+     */
+    private static void writeText(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void mergeKeepsCompactingFileWhenRecordsCannotBeRead() throws IOException {
+        File snapshot = folder.newFile("records.bbl");
+        writeUnreadable(snapshot);
+        byte[] before = Files.readAllBytes(snapshot.toPath());
+        File compacting = new File(snapshot.getPath() + ScoreJournal.COMPACTING_SUFFIX);
+        writeText(compacting, "100 alice\n");
+
+        new ScoreJournal(snapshot, false).close();
+
+        assertArrayEquals(before, Files.readAllBytes(snapshot.toPath()));
+        assertEquals("100 alice\n", new String(Files.readAllBytes(compacting.toPath()),
+                                               StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void recordsOfCompactingFileLeftBehindAreRead() throws IOException {
+        File snapshot = folder.newFile("records.bbl");
+        writeUnreadable(snapshot);
+        File compacting = new File(snapshot.getPath() + ScoreJournal.COMPACTING_SUFFIX);
+        writeText(compacting, "100 alice\n");
+        writeText(new File(snapshot.getPath() + ScoreJournal.JOURNAL_SUFFIX), "200 bob\n");
+
+        ScoreRecorder recorder = new ScoreRecorder(snapshot.getPath(), true, false);
+        Leaderboard records = recorder.getRecords();
+        recorder.writeRecords(records);
+
+        assertEquals(2, records.size());
+        assertTrue(records.getNames(100).contains("alice"));
+        assertTrue(records.getNames(200).contains("bob"));
+        assertTrue(compacting.exists());
+    }
+
+    @Test
+    public void compactionAppendsToCompactingFileLeftBehind() throws IOException {
+        File snapshot = folder.newFile("records.bbl");
+        writeUnreadable(snapshot);
+        File compacting = new File(snapshot.getPath() + ScoreJournal.COMPACTING_SUFFIX);
+        writeText(compacting, "100 alice\n200 cut"); // The last line was only written partly
+
+        ScoreJournal journal = new ScoreJournal(snapshot, false);
+        for (int i = 0; i < ScoreJournal.COMPACT_RECORDS; i++) {
+            journal.append(i % 1000, "u" + i);
+        }
+        journal.flush(); // The compaction starts once the records are written
+        journal.close();
+
+        Leaderboard kept = new Leaderboard();
+        LeaderboardFile.read(compacting, kept, true);
+        assertEquals(ScoreJournal.COMPACT_RECORDS + 1, kept.size());
+        assertTrue(kept.getNames(100).contains("alice"));
+        assertFalse(kept.getNames(200).contains("cut"));
+    }
+
+    @Test
+    public void mergeKeepsBinaryFormatOfRecordsFile() throws IOException {
+        File snapshot = folder.newFile("records.bbl");
+        Leaderboard records = new Leaderboard();
+        records.add(300, "bob");
+        LeaderboardFile.writeBinary(snapshot, records, false);
+        File compacting = new File(snapshot.getPath() + ScoreJournal.COMPACTING_SUFFIX);
+        writeText(compacting, "100 alice\n");
+
+        new ScoreJournal(snapshot, false).close();
+
+        assertFalse(compacting.exists());
+        byte[] bytes = Files.readAllBytes(snapshot.toPath());
+        assertEquals(LeaderboardFile.MAGIC, ByteBuffer.wrap(bytes).getInt());
+        Leaderboard merged = new Leaderboard();
+        LeaderboardFile.read(snapshot, merged, false);
+        assertEquals(2, merged.size());
+        assertTrue(merged.getNames(300).contains("bob"));
+        assertTrue(merged.getNames(100).contains("alice"));
+    }
+}
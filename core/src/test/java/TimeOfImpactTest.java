@@ -0,0 +1,132 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * TimeOfImpactTest checks that moving the game forward with the jumps of TimeOfImpact ends in
+ * exactly the same state as stepping one tick at a time, by comparing the bytes of saveState
+ * after every run of the same input.
+ * @author garychen
+ *
+ */
+public class TimeOfImpactTest {
+
+    private static final GameInput[] INPUTS = GameInput.values(); // The inputs to pick from
+
+    /**
+     * A helper method that creates a game from the given seed, with the default bricks
+     * @param seed
+     * @param endless
+     * @return
+     */
+    private static GameEngine newGame(long seed, boolean endless) {
+        GameEngine engine = new GameEngine(new Random(seed));
+        engine.setEndless(endless);
+        engine.step(GameInput.NONE); // Creates the default bricks
+        return engine;
+    }
+
+    /**
+     * A helper method that plays both games with the same random runs of inputs, stepping one of
+     * them and fast forwarding the other, and checks that they are the same after every run. A
+     * game that ends is restarted. It returns the number of ticks played.
+     * @param stepped
+     * @param jumped
+     * @param seed
+     * @param runs
+     * @return
+     */
+    private static long playBoth(GameEngine stepped, GameEngine jumped, long seed, int runs) {
+        Random random = new Random(seed);
+        long ticks = 0;
+        for (int run = 0; run < runs; run++) {
+            GameInput input = INPUTS[random.nextInt(INPUTS.length)];
+            int length = 1 + random.nextInt(random.nextBoolean() ? 8 : 400);
+            for (int i = 0; i < length; i++) {
+                stepped.step(input);
+            }
+            jumped.fastForward(input, length);
+            ticks += length;
+            assertArrayEquals("After run " + run, stepped.saveState(), jumped.saveState());
+            if (stepped.getState() == GameState.ENDING || stepped.isWon()) {
+                stepped.restart(true);
+                jumped.restart(true);
+            }
+        }
+        return ticks;
+    }
+
+    @Test
+    public void normalGames() {
+        for (long seed = 0; seed < 8; seed++) {
+            playBoth(newGame(seed, false), newGame(seed, false), seed, 300);
+        }
+    }
+
+    @Test
+    public void endlessGames() {
+        for (long seed = 0; seed < 4; seed++) {
+            playBoth(newGame(seed, true), newGame(seed, true), seed, 300);
+        }
+    }
+
+    @Test
+    public void manyCircles() {
+        for (long seed = 0; seed < 4; seed++) {
+            GameEngine stepped = newGame(seed, false);
+            GameEngine jumped = newGame(seed, false);
+            stepped.step(GameInput.LAUNCH);
+            jumped.step(GameInput.LAUNCH);
+            Random random = new Random(seed);
+            for (int i = 0; i < 20; i++) {
+                int px = random.nextInt(GameCourt.COURT_WIDTH - GameCourt.CIRCLERADIUS);
+                int py = GameCourt.BRICK_LOWER_LIMIT + random.nextInt(150);
+                int vx = random.nextInt(15) - 7;
+                int vy = random.nextBoolean() ? -1 - random.nextInt(7) : 1 + random.nextInt(7);
+                stepped.addBall(px, py, vx, vy);
+                jumped.addBall(px, py, vx, vy);
+            }
+            playBoth(stepped, jumped, seed, 200);
+        }
+    }
+
+    @Test
+    public void openFlightJumpsOverTicks() throws IOException {
+        BrickField bf = BrickField.forCourt();
+        bf.set(0, 0, null); // A single brick far from the circle
+        GameEngine stepped = new GameEngine(new Random(24));
+        GameEngine jumped = new GameEngine(new Random(24));
+        stepped.load(bf.copy());
+        jumped.load(bf.copy());
+        stepped.step(GameInput.LAUNCH);
+        jumped.step(GameInput.LAUNCH);
+        int calls = 0;
+        int ticks = 0;
+        while (jumped.getLife() == 3) { // Until the circle falls past the paddle that stays still
+            int n = jumped.advance(GameInput.NONE, 2000);
+            for (int i = 0; i < n; i++) {
+                stepped.step(GameInput.NONE);
+            }
+            assertArrayEquals("After tick " + ticks, stepped.saveState(), jumped.saveState());
+            ticks += n;
+            calls++;
+        }
+        assertTrue("Only " + ticks + " ticks for " + calls + " jumps", ticks >= 10 * calls);
+    }
+
+    @Test
+    public void advanceStopsAtTheGivenTicks() {
+        GameEngine engine = newGame(5, false);
+        assertEquals(0, engine.advance(GameInput.NONE, 0));
+        engine.step(GameInput.LAUNCH);
+        for (int i = 0; i < 100; i++) {
+            int n = engine.advance(GameInput.NONE, 3);
+            assertTrue(n >= 1 && n <= 3);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * ActiveRenderer is a Canvas that the GameCourt can be drawn on actively, instead of asking Swing
+ * to repaint and waiting for Swing to decide when to paint.
+ * The canvas has a BufferStrategy of two or three buffers. Each frame is drawn into the back buffer
+ * and then shown at once, which flips the pages when the screen supports it. The frames are
+ * presented right from the thread of the GameLoop, so the time between frames is decided by the
+ * loop alone.
+ * The court is drawn in the middle of the canvas, so the canvas can also take the whole screen in
+ * full-screen exclusive mode. In that mode, the loop renders at the refresh rate of the screen if
+ * the screen tells what it is.
+ * @author garychen
+ *
+ */
+public class ActiveRenderer extends Canvas {
+
+    private static final long serialVersionUID = 1L; // Default serial ID
+    public static final int MIN_BUFFERS = 2; // The least number of buffers, i.e. double buffering
+    public static final int MAX_BUFFERS = 3; // The most number of buffers, i.e. triple buffering
+
+    private final GameCourt court; // The court that is drawn on the canvas
+    private final int buffers; // The number of buffers of the strategy
+    private BufferStrategy strategy; // The buffers to draw into, null until the canvas is shown
+
+    /**
+     * The constructor takes in the court to draw and the number of buffers, which is either 2 or 3.
+     * @param court
+     * @param buffers
+     */
+    public ActiveRenderer(GameCourt court, int buffers) {
+        if (buffers < MIN_BUFFERS || buffers > MAX_BUFFERS) {
+            throw new IllegalArgumentException("Buffers must be 2 or 3");
+        }
+        this.court = court;
+        this.buffers = buffers;
+        setBackground(GameCourt.COURT_COLOR);
+        setFocusable(true);
+        setIgnoreRepaint(true); // The frames are presented by the loop, not by the system
+    }
+
+    /**
+     * Creating the buffers right after the canvas is attached to the screen, since they cannot be
+     * created before.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        synchronized (this) {
+            createBufferStrategy(buffers);
+            strategy = getBufferStrategy();
+        }
+    }
+
+    /**
+     * Dropping the buffers when the canvas is taken off the screen
+     */
+    @Override
+    public void removeNotify() {
+        synchronized (this) {
+            strategy = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Overriding the Canvas method for adjusting the size of the Canvas
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+    }
+
+    /**
+     * Draw a frame into the back buffer and show it. If the buffers are lost while drawing, for
+     * example when the screen mode changes, the frame is drawn again. It does nothing if the
+     * canvas is not shown.
+     */
+    public synchronized void present() {
+        if (strategy == null) {
+            return;
+        }
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    // The area outside of the court in full-screen mode
+                    g.setColor(GameCourt.COURT_COLOR);
+                    g.fillRect(0, 0, getWidth(), getHeight());
+                    g.translate((getWidth() - GameCourt.COURT_WIDTH) / 2,
+                                (getHeight() - GameCourt.COURT_HEIGHT) / 2);
+                    court.drawScene(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync(); // Some systems buffer the drawing
+    }
+
+    /**
+     * Make the given window take the whole screen of the canvas in full-screen exclusive mode, and
+     * set the render rate of the court to the refresh rate of the screen. The window has to be
+     * undecorated before it is shown. It returns false if the screen does not support it, in which
+     * case the window stays as it is.
+     * @param window
+     * @return
+     */
+    public boolean enterFullScreen(Window window) {
+        GraphicsConfiguration gc = window.getGraphicsConfiguration();
+        GraphicsDevice device = gc != null ? gc.getDevice()
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+        if (!device.isFullScreenSupported()) {
+            System.err.println("Full-screen mode is not supported");
+            return false;
+        }
+        window.setIgnoreRepaint(true);
+        device.setFullScreenWindow(window);
+        int refreshRate = device.getDisplayMode().getRefreshRate();
+        if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+            court.setRenderRate(refreshRate);
+        }
+        return true;
+    }
+
+    /**
+     * Give the screen back if the given window is in full-screen exclusive mode.
+     * @param window
+     */
+    public void exitFullScreen(Window window) {
+        GraphicsConfiguration gc = window.getGraphicsConfiguration();
+        if (gc != null && gc.getDevice().getFullScreenWindow() == window) {
+            gc.getDevice().setFullScreenWindow(null);
+            court.setRenderRate(GameCourt.RENDER_RATE);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * AutopilotController is a PaddleController that plays like a user who can see where the circle
+ * will land. Instead of following the circle, it works out where each circle will reach the
+ * paddle from its position and velocity alone, and moves the paddle there ahead of time:
+ * 1. the number of ticks until the circle comes down to the top of the paddle, going up to the
+ * ceiling first if it is going up
+ * 2. where the circle is after that many ticks, bouncing off the side walls on the way.
+ * Both are solved from one wall to the next, not one tick at a time, and match how a Circle
+ * moves: it moves by its velocity each tick, is stopped at a wall, and turns around there. The
+ * bricks the circle will hit on the way can't be known, so the landing is worked out again every
+ * tick, which corrects it as soon as the circle bounces off a brick. For the same reason, while
+ * the circle is still going up, it will most likely come back down from a brick long before the
+ * ceiling, so the paddle only stays under it, and only goes to the landing once it comes down.
+ * When there is more than one circle, the paddle goes for the one that lands first. It lands a
+ * random distance away from the center of the paddle, which is picked again every time it bounces
+ * back up, so that the circle does not fall into the same path forever.
+ * @author garychen
+ *
+ */
+public class AutopilotController implements PaddleController {
+
+    private final Random random; // The random source of the distance
+    private int aim; // The distance away from the center of the paddle the circle should land
+    private Circle target; // The circle the paddle is going for
+    private boolean falling; // Whether that circle was coming down at the last tick
+
+    /**
+     * The constructor takes in the random source of the distance the circle lands from the center
+     * @param random
+     */
+    public AutopilotController(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * return the input that moves the paddle to where the circle that lands first will land. The
+     * circle is launched as soon as it sits on the paddle.
+     */
+    public GameInput control(GameEngine engine) {
+        if (engine.getState() == GameState.HALTING) {
+            return GameInput.LAUNCH;
+        }
+        Paddle p = engine.getPaddle();
+        List<Circle> balls = engine.getBalls();
+        Circle first = null;
+        int firstTicks = Integer.MAX_VALUE;
+        for (int i = 0; i < balls.size(); i++) {
+            Circle c = balls.get(i);
+            int n = ticksToPaddle(c, p.getPy());
+            if (n < firstTicks) {
+                first = c;
+                firstTicks = n;
+            }
+        }
+        if (first == null) {
+            return GameInput.NONE;
+        }
+        // How far from the center the circle can land and still hit the paddle
+        int room = Math.max((p.getWidth() + first.getWidth()) / 2 - GameCourt.PADDLE_VX, 0);
+        if (first == target && falling && first.getVy() < 0) { // Bounced back up
+            aim = random.nextInt(2 * room + 1) - room;
+        }
+        target = first;
+        falling = first.getVy() > 0;
+        if (!falling) { // Bricks are in the way, so stay under it
+            return FollowController.steer(p, first.getPx() + first.getWidth() / 2);
+        }
+        int landing = xAfter(first, firstTicks) + first.getWidth() / 2;
+        // The paddle may have become shorter since the distance was picked
+        return FollowController.steer(p, landing - Math.max(-room, Math.min(aim, room)));
+    }
+
+    /**
+     * return the number of ticks until the bottom of the circle reaches the given y-value, going
+     * up to the ceiling first if the circle is going up, or Integer.MAX_VALUE if it never will
+     * @param c
+     * @param top
+     * @return
+     */
+    public static int ticksToPaddle(Circle c, int top) {
+        int vy = c.getVy();
+        int py = c.getPy();
+        int bottom = top - c.getHeight(); // The y-value of the circle when it reaches the top
+        if (vy == 0 || py > bottom) {
+            return Integer.MAX_VALUE; // Not moving, or already below the paddle
+        }
+        int n = 0;
+        if (vy < 0) { // Up to the ceiling, where it is stopped at 0 and turns around
+            n = ceilDiv(py, -vy);
+            py = 0;
+            vy = -vy;
+        }
+        return n + ceilDiv(bottom - py, vy);
+    }
+
+    /**
+     * return the x-value of the circle after the given number of ticks, bouncing off the side
+     * walls. It goes from one wall to the next, so it takes as many steps as the number of walls
+     * the circle meets, not the number of ticks.
+     * @param c
+     * @param ticks
+     * @return
+     */
+    public static int xAfter(Circle c, int ticks) {
+        int px = c.getPx();
+        int vx = c.getVx();
+        int max = c.getCourtWidth();
+        if (vx == 0 || max <= 0) {
+            return px;
+        }
+        long n = ticks;
+        while (true) {
+            // The number of ticks until the circle is stopped at the wall it is going to
+            int toWall = vx > 0 ? ceilDiv(max - px, vx) : ceilDiv(px, -vx);
+            toWall = Math.max(toWall, 1);
+            if (n < toWall) {
+                return px + (int) n * vx;
+            }
+            px = vx > 0 ? max : 0;
+            vx = -vx;
+            n -= toWall;
+        }
+    }
+
+    /**
+     * A helper method that divides two numbers that are not negative and rounds up
+     * @param a
+     * @param b
+     * @return
+     */
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,288 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BatchRunner plays a lot of complete games at the same time on all the cores, without a display.
+ * Every game is a GameEngine of its own that goes from the starting state to the ending state,
+ * with the paddle played by a PaddleController: by default a FollowController, which follows the
+ * first circle, or an AutopilotController, which moves to where the circles will land, for soak
+ * tests that play more like a user. Each game has its own controller and random source seeded
+ * from the seed of the batch and the number of the game, so a batch with the same seed always
+ * gives the same results, and the games never share a random source between threads.
+ * The games are split among the threads of a ForkJoinPool. Each game writes its result into its
+ * own place in the arrays of results, so no locking is needed, and the results are put together
+ * after all the games are done:
+ * 1. the distribution of the scores
+ * 2. the number of games won, lost, and stopped for taking too long
+ * 3. the length of the games in ticks
+ * 4. the number of ticks simulated per second
+ * The score of each game can also be submitted to a ScoreRecorder as soon as the game ends, from
+ * whichever thread plays it, which is how a batch can fill a leaderboard.
+ * @author garychen
+ *
+ */
+public class BatchRunner {
+
+    public static final int DEFAULT_GAMES = 10000; // The number of games in a batch by default
+    public static final long DEFAULT_SEED = 120L; // The seed of a batch by default
+    public static final int MAX_TICKS = 100000; // The most number of ticks a game can take, since
+                                                // the circle may bounce in a loop forever
+    public static final int BUCKET = 500; // The size of a bucket of scores in the distribution
+    private static final int GAMES_PER_TASK = 16; // The number of games a task plays itself
+                                                  // instead of splitting further
+
+    private final int games; // The number of games in the batch
+    private final long seed; // The seed of the batch
+    private final int[] scores; // The final score of each game
+    private final int[] ticks; // The number of ticks of each game
+    private final boolean[] won; // Whether each game is won
+    private final boolean[] finished; // Whether each game reaches the ending state
+    private ScoreRecorder recorder; // Where the score of each game is submitted, null if nowhere
+    private boolean autopilot; // Whether the games are played by an AutopilotController
+
+    /**
+     * The constructor takes in the number of games and the seed of the batch.
+     * @param games
+     * @param seed
+     */
+    public BatchRunner(int games, long seed) {
+        this.games = games;
+        this.seed = seed;
+        this.scores = new int[games];
+        this.ticks = new int[games];
+        this.won = new boolean[games];
+        this.finished = new boolean[games];
+    }
+
+    /**
+     * set where the score of each game is submitted, under the name "sim" and the number of the
+     * game, or null if the scores are not submitted
+     * @param recorder
+     */
+    public void setRecorder(ScoreRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * set whether the games are played by an AutopilotController instead of a FollowController
+     * @param autopilot
+     */
+    public void setAutopilot(boolean autopilot) {
+        this.autopilot = autopilot;
+    }
+
+    /**
+     * return the seed of the game with the given number in a batch with the given seed. The two
+     * are mixed so that games next to each other don't get seeds next to each other.
+     * @param seed
+     * @param game
+     * @return
+     */
+    public static long gameSeed(long seed, int game) {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Play the game with the given number from the starting state until it ends or takes too
+     * long, and record its result.
+     * @param game
+     */
+    private void play(int game) {
+        Random random = new Random(gameSeed(seed, game));
+        GameEngine engine = new GameEngine(random);
+        PaddleController controller = autopilot ? new AutopilotController(random)
+                                                : new FollowController(random);
+        int t = 0;
+        while (engine.getState() != GameState.ENDING && t < MAX_TICKS) {
+            engine.step(controller.control(engine));
+            t++;
+        }
+        scores[game] = engine.getScore();
+        ticks[game] = t;
+        finished[game] = engine.getState() == GameState.ENDING;
+        won[game] = finished[game] && engine.isWon();
+        if (recorder != null) {
+            recorder.submit(scores[game], "sim" + game);
+        }
+    }
+
+    /**
+     * GameTask plays a range of games, splitting the range in half until it is small enough.
+     * @author garychen
+     *
+     */
+    private class GameTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // Default serial ID
+        private final int from; // The first game of the range
+        private final int to; // The game right after the range
+
+        GameTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    play(i);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new GameTask(from, mid), new GameTask(mid, to));
+            }
+        }
+    }
+
+    /**
+     * Play all the games in the batch on the given pool and return the time it takes in
+     * nanoseconds.
+     * @param pool
+     * @return
+     */
+    public long run(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        pool.invoke(new GameTask(0, games));
+        return System.nanoTime() - start;
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return a copy of the final score of each game
+     * @return
+     */
+    public int[] getScores() {
+        return scores.clone();
+    }
+
+    /**
+     * return a copy of the number of ticks of each game
+     * @return
+     */
+    public int[] getTicks() {
+        return ticks.clone();
+    }
+
+    /**
+     * return the number of games won
+     * @return
+     */
+    public int getWins() {
+        int n = 0;
+        for (boolean b : won) {
+            n += b ? 1 : 0;
+        }
+        return n;
+    }
+
+    /**
+     * return the number of games that reach the ending state
+     * @return
+     */
+    public int getFinished() {
+        int n = 0;
+        for (boolean b : finished) {
+            n += b ? 1 : 0;
+        }
+        return n;
+    }
+
+    /**
+     * return the total number of ticks of all the games
+     * @return
+     */
+    public long getTotalTicks() {
+        long n = 0;
+        for (int t : ticks) {
+            n += t;
+        }
+        return n;
+    }
+
+    /**
+     * A helper method that returns the value at the given fraction of a sorted array
+     * @param sorted
+     * @param q
+     * @return
+     */
+    private static int percentile(int[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min((int) (q * sorted.length), sorted.length - 1)];
+    }
+
+    /**
+     * Return the results of the batch as text, given the time the batch takes in nanoseconds.
+     * @param nanos
+     * @return
+     */
+    public String report(long nanos) {
+        int[] s = getScores();
+        int[] t = getTicks();
+        Arrays.sort(s);
+        Arrays.sort(t);
+        StringBuilder sb = new StringBuilder();
+        int finishedGames = getFinished();
+        sb.append(String.format("Games: %d (won %d, lost %d, stopped after %d ticks %d)%n",
+                games, getWins(), finishedGames - getWins(), MAX_TICKS, games - finishedGames));
+        sb.append(String.format("Score: min %d, p50 %d, p90 %d, p99 %d, max %d%n",
+                percentile(s, 0), percentile(s, 0.5), percentile(s, 0.9),
+                percentile(s, 0.99), percentile(s, 1)));
+        sb.append(String.format("Length (ticks): min %d, p50 %d, p90 %d, p99 %d, max %d%n",
+                percentile(t, 0), percentile(t, 0.5), percentile(t, 0.9),
+                percentile(t, 0.99), percentile(t, 1)));
+        double seconds = nanos / 1e9;
+        sb.append(String.format("Time: %.2f s, %.0f games/s, %.0f ticks/s%n",
+                seconds, games / seconds, getTotalTicks() / seconds));
+
+        // The distribution of the scores in buckets
+        sb.append("Score distribution:\n");
+        int i = 0;
+        while (i < s.length) {
+            int bucket = s[i] / BUCKET;
+            int j = i;
+            while (j < s.length && s[j] / BUCKET == bucket) {
+                j++;
+            }
+            sb.append(String.format("  %5d-%-5d %d%n", bucket * BUCKET,
+                    bucket * BUCKET + BUCKET - 1, j - i));
+            i = j;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Main method. The optional arguments are the number of games, the seed of the batch, the
+     * number of threads, which is the number of cores by default, a records file that the scores
+     * are submitted to through a journal, or "-" for none, and "autopilot" to play the games with
+     * an AutopilotController.
+     * @param args
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                                      : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        BatchRunner runner = new BatchRunner(games, seed);
+        ScoreRecorder recorder = null;
+        if (args.length > 3 && !args[3].equals("-")) {
+            recorder = new ScoreRecorder(args[3], true, false);
+            runner.setRecorder(recorder);
+        }
+        runner.setAutopilot(args.length > 4 && args[4].equals("autopilot"));
+        long nanos = runner.run(pool);
+        pool.shutdown();
+        System.out.print(runner.report(nanos));
+        if (recorder != null) {
+            recorder.writeRecords(recorder.getRecords()); // Finish writing the journal
+            System.out.println("Records: " + recorder.getRecords().size());
+        }
+    }
+}
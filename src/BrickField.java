@@ -0,0 +1,500 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * BrickField is the compact representation of all the bricks in a board. Instead of keeping a
+ * Brick object for each of the bricks, the board is cut into a grid of slots that each has the
+ * size of a brick, and a brick is only represented by the index of its slot:
+ * 1. a BitSet that records which slot still has a brick that is not broken
+ * 2. a byte array that records the super power of each slot, where 0 means no super power and any
+ * other value is the ordinal of the super power plus one.
+ * The position of a brick is calculated from the index of its slot, and the color is decided by
+ * whether the brick has a super power, so none of them needs to be stored.
+ * Since the slots are numbered row by row from the top left, the slots are also in the same order
+ * that the bricks used to be put into the list of bricks.
+ * @author garychen
+ *
+ */
+public class BrickField {
+
+    private static final SuperPower[] POWERS = SuperPower.values(); // All the super powers
+
+    private final int cols; // Number of slots in a row
+    private final int rows; // Number of slots in a column
+    private final BitSet alive; // The slots that have a brick that is not broken
+    private final byte[] powers; // The super power of each slot, 0 if there isn't one
+    private long tested; // The number of bricks tested for a hit since the field is created
+
+    /**
+     * The constructor creates an empty field with the given number of columns and rows.
+     * @param cols
+     * @param rows
+     */
+    public BrickField(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.alive = new BitSet(cols * rows);
+        this.powers = new byte[cols * rows];
+    }
+
+    /**
+     * Create an empty field that covers the whole court
+     * @return
+     */
+    public static BrickField forCourt() {
+        return new BrickField(GameCourt.COURT_WIDTH / GameCourt.BRICK_WIDTH,
+                              GameCourt.COURT_HEIGHT / GameCourt.BRICK_HEIGHT);
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the number of slots in a row
+     * @return
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * return the number of slots in a column
+     * @return
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * return the x-value of the position of the brick in the given slot
+     * @param slot
+     * @return
+     */
+    public int getPx(int slot) {
+        return (slot % cols) * GameCourt.BRICK_WIDTH;
+    }
+
+    /**
+     * return the y-value of the position of the brick in the given slot
+     * @param slot
+     * @return
+     */
+    public int getPy(int slot) {
+        return (slot / cols) * GameCourt.BRICK_HEIGHT;
+    }
+
+    /**
+     * return the number of bricks tested for a hit since the field is created
+     * @return
+     */
+    public long getTested() {
+        return tested;
+    }
+
+    /**
+     * return whether the given slot has a brick that is not broken
+     * @param slot
+     * @return
+     */
+    public boolean isAlive(int slot) {
+        return alive.get(slot);
+    }
+
+    /**
+     * return the super power of the brick in the given slot, or null if there isn't one
+     * @param slot
+     * @return
+     */
+    public SuperPower getSP(int slot) {
+        int code = powers[slot];
+        return code == 0 ? null : POWERS[code - 1];
+    }
+
+    /**
+     * return the first slot from the given slot on that has a brick that is not broken, or -1 if
+     * there isn't one
+     * @param from
+     * @return
+     */
+    public int nextAlive(int from) {
+        return alive.nextSetBit(from);
+    }
+
+    /**
+     * return the last slot that has a brick that is not broken, or -1 if there isn't one
+     * @return
+     */
+    public int lastAlive() {
+        return alive.length() - 1;
+    }
+
+    /**
+     * return the number of bricks that are not broken
+     * @return
+     */
+    public int size() {
+        return alive.cardinality();
+    }
+
+    /**
+     * return whether all the bricks are broken
+     * @return
+     */
+    public boolean isEmpty() {
+        return alive.isEmpty();
+    }
+
+    /**
+     * return a hash of the bricks and the super powers in the field, so that fields with the same
+     * bricks can be found quickly. It mixes the number of columns and rows, the words of the 
+     * BitSet and the super power of each brick that is not broken with FNV-1a.
+     * @return
+     */
+    public long contentHash() {
+        long h = 0xcbf29ce484222325L; // The FNV offset basis
+        h = (h ^ cols) * 0x100000001b3L; // The FNV prime
+        h = (h ^ rows) * 0x100000001b3L;
+        long[] words = alive.toLongArray();
+        for (long w : words) {
+            h = (h ^ w) * 0x100000001b3L;
+        }
+        for (int i = alive.nextSetBit(0); i >= 0; i = alive.nextSetBit(i + 1)) {
+            if (powers[i] != 0) {
+                h = (h ^ ((long) i << 8 | powers[i])) * 0x100000001b3L;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * return whether the given field has the same size, the same bricks, and the same super
+     * powers on those bricks as this field
+     * @param other
+     * @return
+     */
+    public boolean sameBricks(BrickField other) {
+        if (other.cols != cols || other.rows != rows || !other.alive.equals(alive)) {
+            return false;
+        }
+        for (int i = alive.nextSetBit(0); i >= 0; i = alive.nextSetBit(i + 1)) {
+            if (powers[i] != other.powers[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * return a new field with the same bricks and super powers as this field, which can be broken
+     * without changing this field
+     * @return
+     */
+    public BrickField copy() {
+        BrickField bf = new BrickField(cols, rows);
+        bf.alive.or(alive);
+        System.arraycopy(powers, 0, bf.powers, 0, powers.length);
+        return bf;
+    }
+
+    /**
+     * return a new field that covers the whole court with only the bricks of this field in the
+     * area that can be played: the columns inside the court, and the rows that are fully above
+     * GameCourt.MAP_LIMIT, so that no brick is out of reach or at the height of the paddle. Only
+     * the slots in that area are visited, however large this field is.
+     * @return
+     */
+    public BrickField clipToCourt() {
+        BrickField bf = forCourt();
+        int playCols = Math.min(cols, bf.cols);
+        int playRows = Math.min(rows, (GameCourt.MAP_LIMIT - 1) / GameCourt.BRICK_HEIGHT);
+        for (int r = 0; r < playRows; r++) {
+            int end = r * cols + playCols;
+            for (int i = alive.nextSetBit(r * cols); i >= 0 && i < end;
+                    i = alive.nextSetBit(i + 1)) {
+                int slot = r * bf.cols + i % cols;
+                bf.alive.set(slot);
+                bf.powers[slot] = powers[i];
+            }
+        }
+        return bf;
+    }
+
+    /*** SETTERS **********************************************************************************/
+    /**
+     * Put a brick with the given super power in the slot on the given column and row
+     * @param col
+     * @param row
+     * @param sp
+     */
+    public void set(int col, int row, SuperPower sp) {
+        int slot = row * cols + col;
+        alive.set(slot);
+        powers[slot] = (byte) (sp == null ? 0 : sp.ordinal() + 1);
+    }
+
+    /**
+     * Break the brick in the given slot
+     * @param slot
+     */
+    public void remove(int slot) {
+        alive.clear(slot);
+    }
+
+    /**
+     * Move every brick down by one row, leaving the top row empty. The bricks that would move to
+     * the given row or below are removed instead. It returns the number of bricks removed.
+     * @param limitRow
+     * @return
+     */
+    public int scrollDown(int limitRow) {
+        int end = Math.min(limitRow, rows) * cols; // The first slot that is removed
+        int keep = Math.max(end - cols, 0); // The slots that move down
+        int removed = alive.get(keep, cols * rows).cardinality();
+        BitSet moved = alive.get(0, keep);
+        alive.clear();
+        for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+            alive.set(i + cols);
+        }
+        System.arraycopy(powers, 0, powers, cols, keep);
+        Arrays.fill(powers, 0, Math.min(cols, powers.length), (byte) 0);
+        Arrays.fill(powers, Math.max(end, cols), powers.length, (byte) 0);
+        return removed;
+    }
+
+    /**
+     * Remove all the bricks so that the field can be filled again without creating a new one
+     */
+    public void clear() {
+        alive.clear();
+        Arrays.fill(powers, (byte) 0);
+    }
+
+    /**
+     * Find the brick that the circle hits. Only the slots that the circle covers are checked.
+     * Since the edges of a brick count as part of the brick, the slot before the one the circle
+     * starts in is also checked. The slots are checked in order, so if the circle hits more than
+     * one brick, the one in the first slot is returned.
+     * If the circle is in swept mode, all the slots along the path of its last move are checked 
+     * and the brick that the circle touches first is returned instead. Only when the path touches
+     * nothing will the end position be checked.
+     * @param circle
+     * @return the slot of the brick that is hit, or -1 if the circle hits nothing
+     */
+    public int findHit(Circle circle) {
+        if (circle.isSwept()) {
+            int slot = findSweptHit(circle);
+            if (slot != -1) {
+                return slot;
+            }
+        }
+        int bw = GameCourt.BRICK_WIDTH;
+        int bh = GameCourt.BRICK_HEIGHT;
+        int c0 = Math.max(Math.floorDiv(circle.getPx() - 1, bw), 0);
+        int c1 = Math.min(Math.floorDiv(circle.getPx() + circle.getWidth(), bw), cols - 1);
+        int r0 = Math.max(Math.floorDiv(circle.getPy() - 1, bh), 0);
+        int r1 = Math.min(Math.floorDiv(circle.getPy() + circle.getHeight(), bh), rows - 1);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int slot = r * cols + c;
+                if (alive.get(slot)) {
+                    tested++;
+                    if (circle.touchRect(c * bw, r * bh, bw, bh) != null) {
+                        return slot;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * A helper method that checks all the slots covered by the path of the last move of the 
+     * circle, and returns the one that the circle touches the earliest. If two bricks are touched
+     * at the same time, the one in the first slot is returned.
+     * @param circle
+     * @return the slot of the brick that is hit, or -1 if the circle hits nothing
+     */
+    private int findSweptHit(Circle circle) {
+        int bw = GameCourt.BRICK_WIDTH;
+        int bh = GameCourt.BRICK_HEIGHT;
+        int minX = Math.min(circle.getPrevPx(), circle.getPx());
+        int maxX = Math.max(circle.getPrevPx(), circle.getPx()) + circle.getWidth();
+        int minY = Math.min(circle.getPrevPy(), circle.getPy());
+        int maxY = Math.max(circle.getPrevPy(), circle.getPy()) + circle.getHeight();
+        int c0 = Math.max(Math.floorDiv(minX - 1, bw), 0);
+        int c1 = Math.min(Math.floorDiv(maxX, bw), cols - 1);
+        int r0 = Math.max(Math.floorDiv(minY - 1, bh), 0);
+        int r1 = Math.min(Math.floorDiv(maxY, bh), rows - 1);
+        int best = -1;
+        double bestTime = 2; // Any contact happens no later than 1
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int slot = r * cols + c;
+                if (alive.get(slot)) {
+                    tested++;
+                    double t = circle.sweep(c * bw, r * bh, bw, bh);
+                    if (t >= 0 && t < bestTime) {
+                        best = slot;
+                        bestTime = t;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Draw all the bricks that are not broken. Bricks with a super power are drawn in a different
+     * color.
+     * @param g
+     */
+    public void draw(Graphics g) {
+        drawSlots(g, 0, cols * rows);
+    }
+
+    /**
+     * Draw the bricks on the given row that are not broken
+     * @param g
+     * @param row
+     */
+    public void drawRow(Graphics g, int row) {
+        drawSlots(g, row * cols, (row + 1) * cols);
+    }
+
+    /**
+     * A helper method that draws the bricks that are not broken from one slot up to another
+     * @param g
+     * @param from
+     * @param to
+     */
+    private void drawSlots(Graphics g, int from, int to) {
+        if (g != null) {
+            Color current = null;
+            for (int i = alive.nextSetBit(from); i >= 0 && i < to; i = alive.nextSetBit(i + 1)) {
+                Color c = powers[i] == 0 ? GameCourt.BRICK_COLOR : GameCourt.SPBRICK_COLOR;
+                if (c != current) { // Only change the color when needed
+                    g.setColor(c);
+                    current = c;
+                }
+                // -1 to make each of the brick distinguishable.
+                g.fillRect(getPx(i) + 1, getPy(i) + 1,
+                           GameCourt.BRICK_WIDTH - 1, GameCourt.BRICK_HEIGHT - 1);
+            }
+        }
+    }
+
+    /**
+     * Write the field into the output: the number of columns and rows, the words of the BitSet, 
+     * and the super power of each slot.
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(cols);
+        out.writeInt(rows);
+        long[] words = alive.toLongArray();
+        out.writeInt(words.length);
+        for (long w : words) {
+            out.writeLong(w);
+        }
+        out.write(powers);
+    }
+
+    /**
+     * Read a field that is written by writeTo from the input.
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static BrickField readFrom(DataInput in) throws IOException {
+        BrickField bf = new BrickField(in.readInt(), in.readInt());
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        bf.alive.or(BitSet.valueOf(words));
+        in.readFully(bf.powers);
+        return bf;
+    }
+
+    /**
+     * A helper method that returns the number of slots that have a super power
+     * @return
+     */
+    private int countPowers() {
+        int n = 0;
+        for (byte p : powers) {
+            if (p != 0) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * return the number of bytes that writePacked writes for this field
+     * @return
+     */
+    public int packedSize() {
+        return 2 + 2 + (cols * rows + 7) / 8 + 4 + countPowers() * 5;
+    }
+
+    /**
+     * Write the field in the packed form used by the LevelPack: the number of columns and rows as
+     * shorts, one bit for each slot in the order of the slots, with the first slot in the lowest
+     * bit of the first byte, and then the number of slots that have a super power followed by the
+     * slot and the super power code of each of them. Since few bricks have a super power, this 
+     * takes about one bit for each slot instead of the nine bits of writeTo.
+     * @param out
+     * @throws IOException
+     */
+    public void writePacked(DataOutput out) throws IOException {
+        out.writeShort(cols);
+        out.writeShort(rows);
+        byte[] bits = new byte[(cols * rows + 7) / 8];
+        byte[] set = alive.toByteArray(); // Cut off after the last slot that is set
+        System.arraycopy(set, 0, bits, 0, set.length);
+        out.write(bits);
+        out.writeInt(countPowers());
+        for (int i = 0; i < powers.length; i++) {
+            if (powers[i] != 0) {
+                out.writeInt(i);
+                out.writeByte(powers[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a field that is written by writePacked from the current position of the buffer. The
+     * position is moved to the end of the field.
+     * @param in
+     * @return
+     * @throws IOException if the field is broken
+     */
+    public static BrickField readPacked(ByteBuffer in) throws IOException {
+        try {
+            BrickField bf = new BrickField(in.getShort() & 0xFFFF, in.getShort() & 0xFFFF);
+            int length = (bf.cols * bf.rows + 7) / 8;
+            ByteBuffer bits = in.duplicate();
+            bits.limit(bits.position() + length);
+            bf.alive.or(BitSet.valueOf(bits));
+            in.position(in.position() + length);
+            int n = in.getInt();
+            for (int i = 0; i < n; i++) {
+                int slot = in.getInt();
+                byte code = in.get();
+                if (code < 0 || code > POWERS.length) {
+                    throw new IOException("Unknown super power in the level");
+                }
+                bf.powers[slot] = code;
+            }
+            return bf;
+        } catch (RuntimeException e) {
+            throw new IOException("The level is broken");
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * BrickStream is the endless list of rows of bricks of the endless mode. The rows are made ahead
+ * of time in chunks of CHUNK_ROWS rows on a background thread, so taking a row during a tick
+ * never has to wait for it to be made.
+ * A row is kept compactly in its chunk: one bit for each column that has a brick, followed by
+ * CODE_BITS bits for the super power of each column. Each stream only ever has AHEAD_CHUNKS
+ * chunks being made or waiting, plus the one it is taking rows from, and the chunk is used again
+ * for the next rows once all of its rows are taken, so the memory of a stream does not grow
+ * however long it runs. The chunks can be kept outside of the heap of Java, so that a very long
+ * run does not even leave anything for the garbage collector.
+ * Each row is made from the seed of the stream and the number of the row only, so the same seed
+ * always gives the same rows, and a stream can start at any row, which is how a saved endless
+ * game is played again.
+ * All the streams share one background thread, so a stream that is no longer used only needs to
+ * be forgotten. A stream itself should only be used by one thread.
+ * @author garychen
+ *
+ */
+public class BrickStream {
+
+    public static final int CHUNK_ROWS = 64; // The number of rows made at a time
+    public static final int AHEAD_CHUNKS = 4; // The number of chunks made ahead of time
+    public static final int CODE_BITS = 2; // The number of bits of the code of a super power
+    private static final SuperPower[] POWERS = SuperPower.values(); // All the super powers
+    private static final long GOLDEN = 0x9e3779b97f4a7c15L; // The step of SplitMix64
+    private static final ExecutorService GENERATOR = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "BrickStream-generator");
+                    t.setDaemon(true);
+                    return t;
+                }
+            }); // The thread that makes the chunks of all the streams
+
+    private final int cols; // The number of columns of a row
+    private final long seed; // The seed the rows are made from
+    private final boolean offHeap; // Whether the chunks are kept outside of the heap
+    private final int rowBytes; // The number of bytes of a row in a chunk
+    private final int codeStart; // The byte of a row where the codes of the super powers start
+    private final Queue<Future<ByteBuffer>> ahead; // The chunks being made, in order
+    private long nextChunkRow; // The first row of the next chunk to be made
+    private ByteBuffer current; // The chunk rows are taken from, or null at first
+    private int rowInChunk; // The next row to take in the current chunk
+    private long row; // The number of the next row to take
+
+    /**
+     * The constructor takes in the number of columns of a row, the seed the rows are made from,
+     * the first row to take, and whether the chunks are kept outside of the heap. It starts making
+     * the first chunks right away.
+     * @param cols
+     * @param seed
+     * @param firstRow
+     * @param offHeap
+     */
+    public BrickStream(int cols, long seed, long firstRow, boolean offHeap) {
+        if (POWERS.length >= 1 << CODE_BITS) {
+            throw new IllegalStateException("Too many super powers for the codes");
+        }
+        this.cols = cols;
+        this.seed = seed;
+        this.offHeap = offHeap;
+        this.codeStart = (cols + 7) / 8;
+        this.rowBytes = codeStart + (cols * CODE_BITS + 7) / 8;
+        this.ahead = new ArrayDeque<Future<ByteBuffer>>();
+        this.nextChunkRow = firstRow;
+        this.row = firstRow;
+        for (int i = 0; i < AHEAD_CHUNKS; i++) {
+            makeChunk(offHeap ? ByteBuffer.allocateDirect(CHUNK_ROWS * rowBytes)
+                              : ByteBuffer.allocate(CHUNK_ROWS * rowBytes));
+        }
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the number of the next row to take, which is also the number of rows taken if the
+     * stream started at row 0
+     * @return
+     */
+    public long getRow() {
+        return row;
+    }
+
+    /**
+     * return the seed the rows are made from
+     * @return
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * return the number of bytes of the chunks of the stream, which stays the same however long
+     * the stream runs
+     * @return
+     */
+    public int getBytes() {
+        return (AHEAD_CHUNKS + 1) * CHUNK_ROWS * rowBytes;
+    }
+
+    /**
+     * return whether the chunks are kept outside of the heap
+     * @return
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Take the next row and put its bricks on the given row of the field. The row of the field
+     * should be empty.
+     * @param into
+     * @param intoRow
+     */
+    public void nextRow(BrickField into, int intoRow) {
+        if (current == null || rowInChunk == CHUNK_ROWS) {
+            if (current != null) {
+                makeChunk(current); // Used again for the rows after the ones being made
+            }
+            current = takeChunk();
+            rowInChunk = 0;
+        }
+        int base = rowInChunk * rowBytes;
+        int n = Math.min(cols, into.getCols());
+        for (int c = 0; c < n; c++) {
+            if ((current.get(base + c / 8) >> (c % 8) & 1) != 0) {
+                int bit = c * CODE_BITS;
+                int code = (current.get(base + codeStart + bit / 8) >> (bit % 8))
+                           & ((1 << CODE_BITS) - 1);
+                into.set(c, intoRow, code == 0 ? null : POWERS[code - 1]);
+            }
+        }
+        rowInChunk++;
+        row++;
+    }
+
+    /**
+     * A helper method that asks the background thread to make the next chunk into the given
+     * buffer
+     * @param buf
+     */
+    private void makeChunk(final ByteBuffer buf) {
+        final long first = nextChunkRow;
+        nextChunkRow += CHUNK_ROWS;
+        ahead.add(GENERATOR.submit(new Callable<ByteBuffer>() {
+            public ByteBuffer call() {
+                fill(buf, first);
+                return buf;
+            }
+        }));
+    }
+
+    /**
+     * A helper method that waits for the oldest chunk being made and returns it
+     * @return
+     */
+    private ByteBuffer takeChunk() {
+        Future<ByteBuffer> f = ahead.remove();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return f.get();
+                } catch (InterruptedException e) {
+                    interrupted = true; // The row is needed anyway
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to make the bricks", e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A helper method that makes the rows of a chunk from the given row on. Each slot has a brick
+     * by a half chance, and the brick has a super power by the same chance as in the game. The
+     * random numbers of a row come from SplitMix64 started from the seed and the number of the
+     * row.
+     * @param buf
+     * @param first
+     */
+    private void fill(ByteBuffer buf, long first) {
+        for (int r = 0; r < CHUNK_ROWS; r++) {
+            int base = r * rowBytes;
+            for (int i = 0; i < rowBytes; i++) {
+                buf.put(base + i, (byte) 0);
+            }
+            long state = mix(seed ^ mix((first + r) * GOLDEN));
+            for (int c = 0; c < cols; c++) {
+                state += GOLDEN;
+                long bits = mix(state);
+                if ((bits & 1) == 0) {
+                    continue;
+                }
+                int ran = (int) ((bits >>> 1) % GameCourt.RANDOMSP);
+                int code = ran >= 1 && ran <= POWERS.length ? ran : 0; // Like GameEngine.rollSP
+                buf.put(base + c / 8, (byte) (buf.get(base + c / 8) | 1 << (c % 8)));
+                int bit = c * CODE_BITS;
+                int at = base + codeStart + bit / 8;
+                buf.put(at, (byte) (buf.get(at) | code << (bit % 8)));
+            }
+        }
+    }
+
+    /**
+     * A helper method that mixes the bits of the given number, which is the output step of
+     * SplitMix64
+     * @param z
+     * @return
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -5,10 +5,20 @@ import java.awt.Graphics;
  * Circle is a class extending Movalbe Game Object. It represents the sphere in the brick breaker 
  * game. As a result, it is responsible for the movement itself, drawing of the oval, as well as 
  * bouncing
+ * Circle can check collision in two modes:
+ * 1. discrete, which only checks the four points of the circle at where the circle ends after a 
+ * move. If the circle moves further than the size of a brick in one move, it may jump over it.
+ * 2. swept, which checks the whole path that the center of the circle travels in the last move,
+ * so that the circle will hit the first thing on the path no matter how fast it goes.
  * @author garychen
  *
  */
 public class Circle extends MovableGameObj {
+    
+    private boolean swept; // Whether the collision is checked along the path of the last move
+    private int prevPx; // x-value of the position before the last move
+    private int prevPy; // y-value of the position before the last move
+    private Direction sweptFace; // The direction of the object found in the last sweep
 
     /**
      * The constructor that takes in all the variable that the Movable Game Object needs
@@ -26,6 +36,71 @@ public class Circle extends MovableGameObj {
                   int height, Color color, int vx, int vy, 
                   int courtWidth, int courtHeight) {
         super(px, py, width, height, color, vx, vy, courtWidth, courtHeight);
+        this.prevPx = px;
+        this.prevPy = py;
+    }
+    
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return whether the circle checks the collision along the path of the last move
+     * @return
+     */
+    public boolean isSwept() {
+        return swept;
+    }
+    
+    /**
+     * return the x-value of the position before the last move
+     * @return
+     */
+    public int getPrevPx() {
+        return prevPx;
+    }
+    
+    /**
+     * return the y-value of the position before the last move
+     * @return
+     */
+    public int getPrevPy() {
+        return prevPy;
+    }
+    
+    /**
+     * return the direction of the object found in the last sweep that has a contact
+     * @return
+     */
+    public Direction getSweptFace() {
+        return sweptFace;
+    }
+    
+    /*** SETTERS **********************************************************************************/
+    /**
+     * set whether the circle checks the collision along the path of the last move
+     * @param swept
+     */
+    public void setSwept(boolean swept) {
+        this.swept = swept;
+    }
+    
+    /**
+     * set the position before the last move, which is used when the state of a game is restored
+     * @param prevPx
+     * @param prevPy
+     */
+    public void setPrevPosition(int prevPx, int prevPy) {
+        this.prevPx = prevPx;
+        this.prevPy = prevPy;
+    }
+    
+    /**
+     * Overriding the move method so that the position before the move is remembered for the swept
+     * collision.
+     */
+    @Override
+    public void move() {
+        prevPx = getPx();
+        prevPy = getPy();
+        super.move();
     }
 
     /**
@@ -83,8 +158,7 @@ public class Circle extends MovableGameObj {
     public Direction hitObj(GameObj that) {
         Direction d = null;
         if (that != null) {
-            int cR = this.getWidth() / 2;
-            d = isIn(that, getPx(), getPy(), cR);
+            d = hitRect(that.getPx(), that.getPy(), that.getWidth(), that.getHeight());
             if (d != null) {
                 if (that.getClass() == Paddle.class) { // Check if that is paddle
                     int pVx = ((Paddle)that).getVx();
@@ -106,22 +180,162 @@ public class Circle extends MovableGameObj {
     }
     
     /**
-     * Assume that the GameObj input in is not null, the method will determine in which direction, 
-     * if any, did Circle hits that Game Object. Basically, to see if each point 
-     * (left, right, up, down), of the circle is in the area of that GameObj.
+     * hitRect works the same as hitObj for a rectangle that is not a Game Object, such as a brick 
+     * in the BrickField. It will return the direction of the rectangle with respect to Circle if 
+     * they collide, or null if they don't.
+     * In swept mode, the circle will be moved back to where it first touches the rectangle so that
+     * it bounces from the right place. If the path does not touch the rectangle, the end position
+     * is still checked in case the circle starts inside it.
+     * @param tPx
+     * @param tPy
+     * @param tW
+     * @param tH
+     * @return
+     */
+    public Direction hitRect(int tPx, int tPy, int tW, int tH) {
+        if (swept) {
+            double t = sweep(tPx, tPy, tW, tH);
+            if (t >= 0) {
+                // Move back to the point of contact along the path
+                setPx(prevPx + (int) Math.round(t * (getPx() - prevPx)));
+                setPy(prevPy + (int) Math.round(t * (getPy() - prevPy)));
+                return sweptFace;
+            }
+        }
+        return touchRect(tPx, tPy, tW, tH);
+    }
+    
+    /**
+     * touchRect only checks the four points of the circle at where it is now, no matter which mode
+     * the circle is in. Unlike hitRect, it will never move the circle.
+     * @param tPx
+     * @param tPy
+     * @param tW
+     * @param tH
+     * @return
+     */
+    public Direction touchRect(int tPx, int tPy, int tW, int tH) {
+        return isIn(tPx, tPy, tW, tH, getPx(), getPy(), this.getWidth() / 2);
+    }
+    
+    /**
+     * sweep will find the time that the circle first touches the rectangle in the last move, where
+     * 0 is the position before the move and 1 is the position after the move.
+     * It treats the center of the circle as a point moving along a line, and the rectangle as 
+     * grown by the radius of the circle on each side, with round corners. The time that the point
+     * enters the grown rectangle is when they first touch, and the side that the point enters
+     * from is the face that is hit, which will be kept so that getSweptFace can return it. At a
+     * corner, the face is the side that the center is further out from.
+     * If the circle does not touch the rectangle, or it is already touching it before the move,
+     * the method will return -1.
+     * @param tPx
+     * @param tPy
+     * @param tW
+     * @param tH
+     * @return the time of the first contact between 0 and 1, or -1 if there is no contact
+     */
+    public double sweep(int tPx, int tPy, int tW, int tH) {
+        int r = this.getWidth() / 2;
+        double x0 = prevPx + r;
+        double y0 = prevPy + r;
+        double dx = getPx() - prevPx;
+        double dy = getPy() - prevPy;
+        
+        // The time that the center is between the left and right of the grown rectangle
+        double enterX;
+        double exitX;
+        if (dx == 0) {
+            if (x0 < tPx - r || x0 > tPx + tW + r) {
+                return -1;
+            }
+            enterX = Double.NEGATIVE_INFINITY;
+            exitX = Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (tPx - r - x0) / dx;
+            double t2 = (tPx + tW + r - x0) / dx;
+            enterX = Math.min(t1, t2);
+            exitX = Math.max(t1, t2);
+        }
+        
+        // The time that the center is between the top and bottom of the grown rectangle
+        double enterY;
+        double exitY;
+        if (dy == 0) {
+            if (y0 < tPy - r || y0 > tPy + tH + r) {
+                return -1;
+            }
+            enterY = Double.NEGATIVE_INFINITY;
+            exitY = Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (tPy - r - y0) / dy;
+            double t2 = (tPy + tH + r - y0) / dy;
+            enterY = Math.min(t1, t2);
+            exitY = Math.max(t1, t2);
+        }
+        
+        double enter = Math.max(enterX, enterY);
+        double exit = Math.min(exitX, exitY);
+        // No contact if the center never is in both range at the same time, if it is already in 
+        // before the move, or if the contact happens after the move.
+        if (enter > exit || enter < 0 || enter > 1) {
+            return -1;
+        }
+        
+        // The grown rectangle is a box, but its corners should be round: if the center enters it
+        // beside a corner, it only touches when it comes within the radius of that corner
+        double cx = x0 + enter * dx;
+        double cy = y0 + enter * dy;
+        boolean besideX = cx < tPx || cx > tPx + tW;
+        boolean besideY = cy < tPy || cy > tPy + tH;
+        if (besideX && besideY) {
+            double kx = cx < tPx ? tPx : tPx + tW; // The corner
+            double ky = cy < tPy ? tPy : tPy + tH;
+            double a = dx * dx + dy * dy;
+            double b = 2 * ((x0 - kx) * dx + (y0 - ky) * dy);
+            double c = (x0 - kx) * (x0 - kx) + (y0 - ky) * (y0 - ky) - r * r;
+            double disc = b * b - 4 * a * c;
+            if (disc < 0) {
+                return -1; // Passes by the corner
+            }
+            double t = (-b - Math.sqrt(disc)) / (2 * a);
+            if (t < 0 || t > 1) {
+                return -1;
+            }
+            // The face is the side the center is further out from at the contact
+            double nx = x0 + t * dx - kx;
+            double ny = y0 + t * dy - ky;
+            if (Math.abs(nx) >= Math.abs(ny)) {
+                sweptFace = nx < 0 ? Direction.RIGHT : Direction.LEFT;
+            } else {
+                sweptFace = ny < 0 ? Direction.DOWN : Direction.UP;
+            }
+            return t;
+        }
+
+        // The side that is entered last is the side that is hit
+        if (enterX > enterY) {
+            sweptFace = dx > 0 ? Direction.RIGHT : Direction.LEFT;
+        } else {
+            sweptFace = dy > 0 ? Direction.DOWN : Direction.UP;
+        }
+        return enter;
+    }
+    
+    /**
+     * The method will determine in which direction, if any, did Circle hits the rectangle given by
+     * its position, width and height. Basically, to see if each point (left, right, up, down), of 
+     * the circle is in the area of that rectangle.
      * If none of the point of the Circle is in, the method will return null.
-     * @param that
+     * @param tPx
+     * @param tPy
+     * @param tW
+     * @param tH
      * @param px
      * @param py
-     * @param width
-     * @param height
+     * @param r
      * @return
      */
-    private Direction isIn(GameObj that, int px, int py, int r) {
-        int tPx = that.getPx();
-        int tPy = that.getPy();
-        int tW = that.getWidth();
-        int tH = that.getHeight();
+    private Direction isIn(int tPx, int tPy, int tW, int tH, int px, int py, int r) {
         // If the bottom of the circle hits an object
         if ((px + r <= tPx + tW && px + r >= tPx) 
             && (py + 2 * r <= tPy + tH && py + 2 * r >= tPy)) {
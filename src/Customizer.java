@@ -1,145 +1,361 @@
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
-import java.util.LinkedList;
-
 
 import javax.swing.JPanel;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
 
 /**
- * Customizer, a class extending JPanel, will be the class for the user to create their own brick 
- * breaker map through clicking at the panel. When the user click the panel, the brick where he 
- * click will switch color such that the user can see what he just click.
+ * Customizer, a class extending JPanel, will be the class for the user to create their own brick
+ * breaker map through clicking at the panel. When the user click the panel, the brick where he
+ * click will switch color such that the user can see what he just click. The user can also hold
+ * the mouse and drag it, which will put bricks on every slot the mouse passes if the first slot
+ * was empty, or remove them if it had a brick.
  * Also, the customizer will be in charge of resetting the panel when method is called
- * It will also have a method to provide the bricks that the user selected as a list form.
+ * It will also have a method to provide the bricks that the user selected as a brick field.
+ * The board can be many times larger than the court, so it is meant to be put in a JScrollPane,
+ * which only shows a part of it that is as large as the default board. To stay fast however
+ * large the board is:
+ * 1. the bricks are kept in a BrickField, which only takes one bit and one byte for each slot,
+ * instead of a Brick object for each of them
+ * 2. only the slots in the area that Swing asks to paint are drawn, which is at most the part
+ * that is shown
+ * 3. when a slot is changed, only that slot is repainted.
  * @author garychen
  *
  */
-public class Customizer extends JPanel {
-    
-    private static final int BOARD_WIDTH = GameCourt.COURT_WIDTH; // The width of the customizer 
+public class Customizer extends JPanel implements Scrollable {
+
+    private static final int BOARD_WIDTH = GameCourt.COURT_WIDTH; // The width of the customizer
                                                                   //board
     private static final int BOARD_HEIGHT = GameCourt.COURT_HEIGHT / 3 * 2; // The length of the
                                                                             // customizer board
+    public static final int DEFAULT_COLS = BOARD_WIDTH / GameCourt.BRICK_WIDTH; // The number of
+                                                                                // columns at first
+    public static final int DEFAULT_ROWS = BOARD_HEIGHT / GameCourt.BRICK_HEIGHT; // The number of
+                                                                                  // rows at first
+    public static final int MAX_SIZE = 0xFFFF; // The most number of columns or rows, which is the
+                                               // most a LevelPack can hold
+    public static final int MAX_SLOTS = 1 << 24; // The most number of slots on the board
     private static final long serialVersionUID = 1L; // default serial number
-    // We use 2D-array instead of Collections like what we used in Game Court because we need to
-    // account for the user's mouse x and y position, and it will be more convenient to do some
-    // arithmetic operation that will be explained laer to locate which brick to change quicker
-    // Also, we create bricks at the very first stage, so it will be more time consuming to look
-    // over every single brick to find which brick to implement.
-    private Brick[][] blockArray;// the 2D-array of the brick
-    /**
-     * The constructor that will create and fill the 2D-array with bricks
-     * It will also set up the JPanel for the user to use.
+    // We use a grid of slots instead of Collections like what we used in Game Court because we
+    // need to account for the user's mouse x and y position, and it will be more convenient to do
+    // some arithmetic operation to locate which brick to change quicker.
+    private BrickField field; // the bricks on the board
+    private boolean painting; // whether the drag puts bricks, or removes them otherwise
+    private int lastCol = -1; // the column of the slot the mouse was last on during a drag
+    private int lastRow = -1; // the row of the slot the mouse was last on during a drag
+
+    /**
+     * The constructor that will create a board of the default size, which is two thirds of the
+     * court.
      */
     public Customizer() {
-        // Create the 2D-array with the exact number of bricks on each row and column
-        blockArray = new Brick[BOARD_HEIGHT / GameCourt.BRICK_HEIGHT]
-                              [BOARD_WIDTH / GameCourt.BRICK_WIDTH];
+        this(DEFAULT_COLS, DEFAULT_ROWS);
+    }
+
+    /**
+     * The constructor that will create an empty board with the given number of columns and rows.
+     * It will also set up the JPanel for the user to use.
+     * @param cols
+     * @param rows
+     */
+    public Customizer(int cols, int rows) {
         setBackground(Color.black);
         setFocusable(true); // Change the focus to this panel
-        
+        setAutoscrolls(true); // Scroll when the mouse is dragged out of the part that is shown
+
         // Hear the mouse event the user has
-        addMouseListener(new MouseAdapter() {
+        MouseAdapter mouse = new MouseAdapter() {
             public void mousePressed(MouseEvent e) {
-                // Get the x and y position of the mouse
-                int mouseX = e.getX();
-                int mouseY = e.getY();
                 // Locate the bricks by using the current mouse to divide either the height or width
                 // of the brick
-                Brick b = 
-                    blockArray[mouseY / GameCourt.BRICK_HEIGHT][mouseX / GameCourt.BRICK_WIDTH];
-                if (b.getColor().equals(Color.black)) {
-                    b.setColor(Color.white);
-                } else {
-                    b.setColor(Color.black);
+                int col = e.getX() / GameCourt.BRICK_WIDTH;
+                int row = e.getY() / GameCourt.BRICK_HEIGHT;
+                if (!isOnBoard(col, row)) {
+                    return;
                 }
-                repaint();
+                // The first slot decides whether the drag puts or removes bricks
+                painting = !field.isAlive(row * field.getCols() + col);
+                lastCol = col;
+                lastRow = row;
+                setSlot(col, row);
             }
-        });
-        reset();
+
+            public void mouseDragged(MouseEvent e) {
+                if (lastCol < 0) {
+                    return;
+                }
+                scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+                int col = Math.max(0, Math.min(e.getX() / GameCourt.BRICK_WIDTH,
+                                               field.getCols() - 1));
+                int row = Math.max(0, Math.min(e.getY() / GameCourt.BRICK_HEIGHT,
+                                               field.getRows() - 1));
+                drawLine(lastCol, lastRow, col, row);
+                lastCol = col;
+                lastRow = row;
+            }
+
+            public void mouseReleased(MouseEvent e) {
+                lastCol = -1;
+                lastRow = -1;
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        setBoardSize(cols, rows);
     }
-    
+
     /**
-     * Reset method will fill the 2D-array with the bricks that are initially black and are each in 
-     * a specific position according to their position in the 2D-array.
+     * A helper method that returns whether the given column and row is on the board
+     * @param col
+     * @param row
+     * @return
      */
-    public void reset() {
-        for (int i = 0; i < blockArray.length; i++) {
-            for (int j = 0; j < blockArray[i].length; j++) {
-                blockArray[i][j] = new Brick(j * GameCourt.BRICK_WIDTH, i * GameCourt.BRICK_HEIGHT,
-                        GameCourt.BRICK_WIDTH, GameCourt.BRICK_HEIGHT, Color.BLACK, null);
+    private boolean isOnBoard(int col, int row) {
+        return col >= 0 && row >= 0 && col < field.getCols() && row < field.getRows();
+    }
+
+    /**
+     * A helper method that puts a brick on the given slot or removes it, depending on what the
+     * drag does, and repaints only that slot if it is changed.
+     * @param col
+     * @param row
+     */
+    private void setSlot(int col, int row) {
+        int slot = row * field.getCols() + col;
+        if (field.isAlive(slot) == painting) {
+            return;
+        }
+        if (painting) {
+            field.set(col, row, null);
+        } else {
+            field.remove(slot);
+        }
+        // +1 to include the grid lines on the right and bottom
+        repaint(col * GameCourt.BRICK_WIDTH, row * GameCourt.BRICK_HEIGHT,
+                GameCourt.BRICK_WIDTH + 1, GameCourt.BRICK_HEIGHT + 1);
+    }
+
+    /**
+     * A helper method that sets every slot on the line from one slot to another, so that no slot
+     * is skipped when the mouse moves across many slots between two events. It walks the line
+     * with Bresenham's algorithm.
+     * @param c0
+     * @param r0
+     * @param c1
+     * @param r1
+     */
+    private void drawLine(int c0, int r0, int c1, int r1) {
+        int dc = Math.abs(c1 - c0);
+        int dr = -Math.abs(r1 - r0);
+        int sc = c0 < c1 ? 1 : -1;
+        int sr = r0 < r1 ? 1 : -1;
+        int err = dc + dr;
+        while (true) {
+            setSlot(c0, r0);
+            if (c0 == c1 && r0 == r1) {
+                break;
+            }
+            int e2 = 2 * err;
+            if (e2 >= dr) {
+                err += dr;
+                c0 += sc;
+            }
+            if (e2 <= dc) {
+                err += dc;
+                r0 += sr;
             }
         }
+    }
+
+    /**
+     * Reset method will remove all the bricks on the board.
+     */
+    public void reset() {
+        field.clear();
         requestFocusInWindow(); // Request the focus
         repaint();
     }
-    
+
+    /**
+     * Change the board into an empty board with the given number of columns and rows
+     * @param cols
+     * @param rows
+     */
+    public void setBoardSize(int cols, int rows) {
+        if (cols < 1 || rows < 1 || cols > MAX_SIZE || rows > MAX_SIZE 
+                || (long) cols * rows > MAX_SLOTS) {
+            throw new IllegalArgumentException("The board cannot be " + cols + "x" + rows);
+        }
+        field = new BrickField(cols, rows);
+        lastCol = -1;
+        lastRow = -1;
+        revalidate(); // The scroll pane takes the new size
+        reset();
+    }
+
     /**
-     * This method will set the size of this JPanel
+     * Show the given field on the board so that the user can edit it. The board is made large
+     * enough to hold the whole field.
+     * @param bf
+     */
+    public void setMap(BrickField bf) {
+        field = bf.copy();
+        revalidate(); // The scroll pane takes the new size
+        repaint();
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the number of columns of the board
+     * @return
+     */
+    public int getCols() {
+        return field.getCols();
+    }
+
+    /**
+     * return the number of rows of the board
+     * @return
+     */
+    public int getRows() {
+        return field.getRows();
+    }
+
+    /**
+     * This method will set the size of this JPanel, which is the size of the whole board
      */
     @Override
     public Dimension getPreferredSize() {
-        return new Dimension(BOARD_WIDTH, BOARD_HEIGHT);
+        return new Dimension(field.getCols() * GameCourt.BRICK_WIDTH,
+                             field.getRows() * GameCourt.BRICK_HEIGHT);
+    }
+
+    /**
+     * The part of the board shown in a JScrollPane is at most as large as the default board
+     */
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension d = getPreferredSize();
+        return new Dimension(Math.min(d.width, BOARD_WIDTH), Math.min(d.height, BOARD_HEIGHT));
+    }
+
+    /**
+     * Scrolling by one unit moves by one brick
+     */
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? GameCourt.BRICK_WIDTH
+                : GameCourt.BRICK_HEIGHT;
+    }
+
+    /**
+     * Scrolling by one block moves by the part that is shown
+     */
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visibleRect.width
+                : visibleRect.height;
+    }
+
+    /**
+     * The board is never stretched to the width of the scroll pane
+     */
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    /**
+     * The board is never stretched to the height of the scroll pane
+     */
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
     }
 
     /**
-     * This method will paint all the bricks
+     * This method will paint the bricks in the area that Swing asks to paint, which is at most
+     * the part of the board that is shown, and is only a slot when a slot is changed.
      * For reference and for the convenience of the user, this method also paint lines that draw the
      * approximate position of each brick.
      */
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        
+        int bw = GameCourt.BRICK_WIDTH;
+        int bh = GameCourt.BRICK_HEIGHT;
+        int width = field.getCols() * bw;
+        int height = field.getRows() * bh;
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, width, height);
+        }
+        int c0 = Math.max(clip.x / bw, 0);
+        int c1 = Math.min((clip.x + clip.width) / bw, field.getCols() - 1);
+        int r0 = Math.max(clip.y / bh, 0);
+        int r1 = Math.min((clip.y + clip.height) / bh, field.getRows() - 1);
+
         // Draw the bricks
-        for (int i = 0; i < blockArray.length; i++) {
-            for (int j = 0; j < blockArray[i].length; j++) {
-                blockArray[i][j].draw(g);
+        Color current = null;
+        for (int i = r0; i <= r1; i++) {
+            for (int j = c0; j <= c1; j++) {
+                int slot = i * field.getCols() + j;
+                if (field.isAlive(slot)) {
+                    Color c = field.getSP(slot) == null ? GameCourt.BRICK_COLOR
+                            : GameCourt.SPBRICK_COLOR;
+                    if (c != current) { // Only change the color when needed
+                        g.setColor(c);
+                        current = c;
+                    }
+                    g.fillRect(j * bw, i * bh, bw, bh);
+                }
             }
         }
-        
+
         // Draw the horizontal line
         g.setColor(Color.white);
-        for (int i = 0; i < blockArray.length; i++) {
-            int y = i * GameCourt.BRICK_HEIGHT;
-            g.drawLine(0,y, BOARD_WIDTH, y);
+        int x0 = c0 * bw;
+        int x1 = Math.min((c1 + 1) * bw, width);
+        for (int i = r0; i <= r1 + 1; i++) {
+            int y = i * bh;
+            g.drawLine(x0, y, x1, y);
         }
-        
+
         // Draw the vertical line.
-        for (int i = 0; i < blockArray[0].length; i++) {
-            int x = i * GameCourt.BRICK_WIDTH;
-            g.drawLine(x, 0, x, BOARD_HEIGHT);
+        int y0 = r0 * bh;
+        int y1 = Math.min((r1 + 1) * bh, height);
+        for (int j = c0; j <= c1 + 1; j++) {
+            int x = j * bw;
+            g.drawLine(x, y0, x, y1);
         }
     }
-    
+
     /**
-     * return the map the user creates as a list
-     * We uses a list for this method because the Game Court uses List, and the essential purpose of
-     * this method is to update the bricks to the main class, which will pass it to the court.
+     * return the map the user creates as a brick field
+     * We uses a brick field for this method because the Game Court uses BrickField, and the
+     * essential purpose of this method is to update the bricks to the main class, which will pass
+     * it to the court. The field is at least as large as the court, and is larger if the board is,
+     * so that the whole board can be saved in the LevelPack. Only the part inside the court is
+     * played when it is applied.
+     * @param penalized whether the board is filled with bricks first
      * @return
      */
-    public List<Brick> getMap(boolean penalized) {
-        List<Brick> brickList = new LinkedList<Brick>();
-        if (penalized) { // Return a list with all the blocks in it
-            for (Brick[] ba: blockArray) {
-                for (Brick b: ba) {
-                    b.setColor(Color.white);
-                    brickList.add(b);
+    public BrickField getMap(boolean penalized) {
+        BrickField court = BrickField.forCourt();
+        BrickField brickField = new BrickField(Math.max(field.getCols(), court.getCols()),
+                                               Math.max(field.getRows(), court.getRows()));
+        if (penalized) { // Return a field with all the blocks in it
+            for (int i = 0; i < field.getRows(); i++) {
+                for (int j = 0; j < field.getCols(); j++) {
+                    field.set(j, i, null);
+                    brickField.set(j, i, null);
                 }
             }
+            repaint();
         } else {
-            // Put the bricks into the list if the bricks have a different color than the background
-            // which will compose the map the user creates
-            for (int i = 0; i < blockArray.length; i++) {
-                for (int j = 0; j < blockArray[i].length; j++) {
-                    Brick b = blockArray[i][j];
-                    if (b.getColor() != GameCourt.COURT_COLOR) {
-                        brickList.add(b);
-                    }
-                }
+            // Put the bricks into the field, which will compose the map the user creates
+            for (int slot = field.nextAlive(0); slot >= 0; slot = field.nextAlive(slot + 1)) {
+                brickField.set(slot % field.getCols(), slot / field.getCols(),
+                               field.getSP(slot));
             }
         }
-        return brickList;
+        return brickField;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+import java.util.Random;
+
+/**
+ * FollowController is the simplest PaddleController: the paddle follows the first circle. Right
+ * before the circle comes down on the paddle, the paddle swings to a random distance away from the
+ * center of the circle, so that it is still moving when they meet and the direction of the circle
+ * changes a little. A new distance is picked every time the circle bounces back up, so that the
+ * circle does not fall into the same path forever.
+ * @author garychen
+ *
+ */
+public class FollowController implements PaddleController {
+
+    public static final int SWING_TICKS = 3; // The number of ticks before the circle reaches the
+                                             // paddle at which the paddle starts to swing
+
+    private final Random random; // The random source of the distance
+    private int aim; // The distance away from the center of the circle to swing to
+    private boolean falling; // Whether the circle was coming down at the last tick
+
+    /**
+     * The constructor takes in the random source of the distance to swing to
+     * @param random
+     */
+    public FollowController(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * return the input that makes the paddle follow the first circle, and picks a new distance if
+     * the circle bounced back up during the last tick
+     */
+    public GameInput control(GameEngine engine) {
+        boolean now = engine.getCircle().getVy() > 0;
+        if (falling && engine.getCircle().getVy() < 0) { // Bounced back up
+            aim = random.nextInt(GameCourt.PADDLE_WIDTH) - GameCourt.PADDLE_WIDTH / 2;
+        }
+        falling = now;
+        return follow(engine, aim);
+    }
+
+    /**
+     * return the input that makes the paddle follow the first circle. When the circle is about to
+     * reach the paddle, the paddle moves its center to the given distance away from the center of
+     * the circle. The circle is launched as soon as it sits on the paddle.
+     * @param engine
+     * @param aim
+     * @return
+     */
+    public static GameInput follow(GameEngine engine, int aim) {
+        if (engine.getState() == GameState.HALTING) {
+            return GameInput.LAUNCH;
+        }
+        Circle c = engine.getCircle();
+        Paddle p = engine.getPaddle();
+        boolean swing = c.getVy() > 0 
+                && p.getPy() - (c.getPy() + c.getHeight()) <= c.getVy() * SWING_TICKS;
+        int target = c.getPx() + c.getWidth() / 2 + (swing ? aim : 0);
+        return steer(p, target);
+    }
+
+    /**
+     * return the input that moves the center of the paddle toward the given x-value, or NONE if
+     * it is closer than half of a move of the paddle
+     * @param p
+     * @param target
+     * @return
+     */
+    public static GameInput steer(Paddle p, int target) {
+        int offset = target - (p.getPx() + p.getWidth() / 2);
+        if (offset < -GameCourt.PADDLE_VX / 2) {
+            return GameInput.LEFT;
+        } else if (offset > GameCourt.PADDLE_VX / 2) {
+            return GameInput.RIGHT;
+        }
+        return GameInput.NONE;
+    }
+}
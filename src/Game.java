@@ -1,11 +1,11 @@
 import java.awt.*;
 import java.awt.event.*;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 
 import javax.swing.*;
-import java.util.List;
 
 /**
  * Game, which is a class implementing Runnable, will be the main class to run
@@ -16,21 +16,52 @@ import java.util.List;
 public class Game implements Runnable {
 
     public static final String OPENING_FILE_PATH = "files/BrickBreakerOpening.txt";
+    
+    private final boolean active; // Whether the court is presented on an ActiveRenderer
+    private final int buffers; // The number of buffers of the ActiveRenderer
+    private final boolean fullScreen; // Whether the game takes the whole screen
+    
+    /**
+     * The default constructor, in which the court is painted by Swing in a window.
+     */
+    public Game() {
+        this(false, ActiveRenderer.MIN_BUFFERS, false);
+    }
+    
+    /**
+     * The constructor takes in whether the court is rendered actively, the number of buffers to 
+     * render with, and whether the game takes the whole screen, which needs active rendering.
+     * @param active
+     * @param buffers
+     * @param fullScreen
+     */
+    public Game(boolean active, int buffers, boolean fullScreen) {
+        this.active = active || fullScreen;
+        this.buffers = buffers;
+        this.fullScreen = fullScreen;
+    }
+    
     /**
      * run is the methods that creates most of the components needed for the game.
      * It will have a main JFrame with a game court
-     * It will also have a controlPanel with three buttons:
+     * It will also have a controlPanel with four buttons:
      * 1. restart, which will restart the game if the game is ended or will restart the current game
      * if the game is paused
      * 2. pause, which will pause the game the instance the button is pressed
-     * 3. customize, which will open another JFrame so that the user can customize his map.
+     * 3. endless, which will start a new game in the endless mode, where the bricks keep moving
+     * down, or go back to the normal mode
+     * 4. customize, which will open another JFrame so that the user can customize his map.
      * In the customize frame, there will be:
      * 1. JPanel, which will be the main workspace for the user to customize the map.
-     * 2. controlPanel2, which will be the place to hold the two buttons
-     * The two buttons will be as follows:
+     * 2. controlPanel2, which will be the place to hold the five buttons
+     * The five buttons will be as follows:
      * 1. apply, which will close the window and apply the user's map into the game. If apply, the 
      * game will be restarted
      * 2. reset, which will reset the JPanel so that the user can draw again
+     * 3. save, which will add the map to the LevelPack so that it can be played again or shared
+     * 4. open, which will show a map saved in the LevelPack so that it can be edited or applied
+     * 5. size, which will change the JPanel into an empty board of the size the user types in. The
+     * board can be larger than the window, and is scrolled to be seen.
      * It will also have another panel named statusPanel, which will display statuses like:
      * 1. life, the life of the user in the current game
      * 2. score, the score of the user in the current game
@@ -64,6 +95,7 @@ public class Game implements Runnable {
         final JFrame frame = new JFrame("BrickBreaker");
         frame.setLocation(600, 600);
         frame.setResizable(false); // Not allow to risize
+        frame.setUndecorated(fullScreen); // A full-screen window has no border
         
         // Status panel, which will appear on the right of the main frame
         // It will contains multiple labels
@@ -108,7 +140,15 @@ public class Game implements Runnable {
         
         // Initialize the game court
         final GameCourt court = new GameCourt(scoreLabel, lifeCount, highScoreLabel, status);
-        frame.add(court, BorderLayout.CENTER);
+        court.getStats().register(); // The timing of the game can be read over JMX
+        // When rendering actively, the canvas is shown instead of the court
+        final ActiveRenderer renderer = active ? new ActiveRenderer(court, buffers) : null;
+        if (renderer != null) {
+            court.setRenderer(renderer);
+            frame.add(renderer, BorderLayout.CENTER);
+        } else {
+            frame.add(court, BorderLayout.CENTER);
+        }
         
         // ControlPanel
         final JPanel controlPanel = new JPanel();
@@ -132,6 +172,16 @@ public class Game implements Runnable {
         });
         controlPanel.add(pause);
         
+        // Endless button, which starts a new game in the endless mode or goes back to the normal
+        // mode
+        final JToggleButton endless = new JToggleButton("Endless");
+        endless.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                court.setEndless(endless.isSelected());
+            }
+        });
+        controlPanel.add(endless);
+        
         // Customize button, which will call to create a frame that is the workspace of the user
         final JButton customize = new JButton("Customize");
         customize.addActionListener(new ActionListener() {
@@ -145,7 +195,8 @@ public class Game implements Runnable {
                 JFrame custom = new JFrame("Customize");
                 custom.setResizable(false);
                 custom.setLocation(600, 600);
-                custom.add(customizer);
+                // The board is scrolled when it is larger than the window
+                custom.add(new JScrollPane(customizer));
                 
                 // Add another JPanel
                 JPanel controlPanel2 = new JPanel();
@@ -164,27 +215,92 @@ public class Game implements Runnable {
                 final JButton apply = new JButton("Apply");
                 apply.addActionListener(new ActionListener() {
                     public void actionPerformed(ActionEvent e) {
-                        List<Brick> brickList = customizer.getMap(false);
                         custom.dispose(); // close the window
                         
+                        // transfer the field of brick to the court and will also restart the game.
+                        // Only the part of the map inside the court is played.
                         // Hidden part: if one didn't customize any map, an angry message will 
                         // appear and give the user the worst penalty!!! -> imagine if you have the 
                         // the most tedious brick breaker with full size bricks and no super power.
-                        if (brickList.isEmpty()) {
+                        if (!court.load(customizer.getMap(false))) {
                             String message = "Young man/woman! Stop being lazy!\n"
                                     + "You are penalized!!!";
                             JOptionPane.showMessageDialog(null, message, "Angry Message", 
                                     JOptionPane.INFORMATION_MESSAGE);
-                            brickList = customizer.getMap(true);
+                            court.load(customizer.getMap(true));
                         }
-                        court.load(brickList); // transfer the list of brick to the court
-                                               // and will also restart the game
                         court.start(); // start the game
                         
                     }
                 });
                 controlPanel2.add(apply);
                 
+                // save button, which adds the map to the level pack
+                final JButton save = new JButton("Save");
+                save.addActionListener(new ActionListener() {
+                    public void actionPerformed(ActionEvent e) {
+                        File file = new File(GameCourt.LEVEL_PACK_FILEPATH);
+                        try {
+                            int index = LevelPack.append(file, customizer.getMap(false));
+                            JOptionPane.showMessageDialog(custom, "Saved as level " + (index + 1),
+                                    "Save", JOptionPane.INFORMATION_MESSAGE);
+                        } catch (IOException ex) {
+                            System.err.println("Failed to save the level");
+                        }
+                    }
+                });
+                controlPanel2.add(save);
+                
+                // open button, which shows a map of the level pack so that it can be applied
+                final JButton open = new JButton("Open");
+                open.addActionListener(new ActionListener() {
+                    public void actionPerformed(ActionEvent e) {
+                        File file = new File(GameCourt.LEVEL_PACK_FILEPATH);
+                        if (!file.exists()) {
+                            JOptionPane.showMessageDialog(custom, "No level is saved yet", "Open",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                            return;
+                        }
+                        try {
+                            LevelPack pack = new LevelPack(file);
+                            String input = JOptionPane.showInputDialog(custom, 
+                                    "Level (1 to " + pack.size() + ")");
+                            if (input == null) {
+                                return; // Cancelled
+                            }
+                            int level = Integer.parseInt(input.trim());
+                            if (level >= 1 && level <= pack.size()) {
+                                customizer.setMap(pack.get(level - 1));
+                            }
+                        } catch (NumberFormatException ex) {
+                            System.err.println("Not a level number");
+                        } catch (IOException ex) {
+                            System.err.println("Failed to open the level pack");
+                        }
+                    }
+                });
+                controlPanel2.add(open);
+                
+                // size button, which changes the board into an empty board of another size
+                final JButton size = new JButton("Size");
+                size.addActionListener(new ActionListener() {
+                    public void actionPerformed(ActionEvent e) {
+                        String input = JOptionPane.showInputDialog(custom, "Columns x rows",
+                                customizer.getCols() + "x" + customizer.getRows());
+                        if (input == null) {
+                            return; // Cancelled
+                        }
+                        String[] parts = input.trim().split("\\s*[xX]\\s*");
+                        try {
+                            customizer.setBoardSize(Integer.parseInt(parts[0]), 
+                                                    Integer.parseInt(parts[1]));
+                        } catch (RuntimeException ex) {
+                            System.err.println("Not a board size: " + input);
+                        }
+                    }
+                });
+                controlPanel2.add(size);
+                
                 custom.pack();                
                 custom.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
                 custom.setVisible(true);
@@ -196,20 +312,42 @@ public class Game implements Runnable {
         frame.addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent e) {
                 court.writeRecords();
+                if (renderer != null) {
+                    renderer.exitFullScreen(frame);
+                }
             }
         });
         frame.pack();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setVisible(true);
+        if (!fullScreen || !renderer.enterFullScreen(frame)) {
+            frame.setVisible(true);
+        }
         
         court.start();
     }
 
     /**
-     * Main method
+     * Main method. The optional arguments are:
+     * 1. -active, which presents the court on an ActiveRenderer
+     * 2. -buffers n, which is the number of buffers of the ActiveRenderer, 2 or 3
+     * 3. -fullscreen, which takes the whole screen and also renders actively
      * @param args
      */
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(new Game());
+        boolean active = false;
+        int buffers = ActiveRenderer.MIN_BUFFERS;
+        boolean fullScreen = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-active")) {
+                active = true;
+            } else if (args[i].equals("-buffers") && i + 1 < args.length) {
+                buffers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-fullscreen")) {
+                fullScreen = true;
+            } else {
+                System.err.println("Unknown argument: " + args[i]);
+            }
+        }
+        SwingUtilities.invokeLater(new Game(active, buffers, fullScreen));
     }
 }
\ No newline at end of file
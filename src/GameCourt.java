@@ -1,9 +1,10 @@
 import java.awt.*;
 import java.awt.event.*;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
 
 import javax.swing.*;
 
@@ -11,21 +12,36 @@ import javax.swing.*;
  * GameCourt is a class implementing JPanel that will be the main court of the game. The user will 
  * mainly use the paddle created in the court to bounce the circle and try to break the brickes to 
  * win the game.
- * It has a Timer to help the continuation of the game
- * It also implementing methods according to the five state of the game so that the game can be run 
- * systematically
+ * It has a GameLoop to help the continuation of the game. The loop ticks the game on its own 
+ * thread at a fixed rate, and asks the court to repaint at a separate rate. Because of this, all 
+ * the state of the game is only touched while holding the lock of the court, and any change to the
+ * Swing components is passed back to the Swing thread. The keys of the user are the exception: they
+ * are passed from the Swing thread to the ticks through a KeyQueue, which needs no lock.
+ * The game itself, which is the state of the game, the paddle, the circle, the bricks, the score 
+ * and the life, is kept in a GameEngine. The court is only a view of the engine: it tells the 
+ * engine which key the user is holding on each tick, paints what is in the engine, and updates 
+ * the labels when the engine tells it that something has changed.
+ * Since the bricks barely change from one frame to another, they are drawn once into an image 
+ * that is kept, and only the place of a broken brick is cleared from the image. Each frame only 
+ * repaints the area around the paddle, the circles and the broken bricks, instead of the whole 
+ * court.
+ * Instead of being painted by Swing, the court can also be presented on an ActiveRenderer, in 
+ * which case the loop draws every frame itself and the JPanel is not shown.
+ * The time of each part of a tick and of each frame is kept in a GameStats, which can be read over 
+ * JMX, and the frame time and frames per second can be shown at the bottom of the court by 
+ * pressing F3.
+ * Every game is recorded by a ReplayRecorder, and the replay is saved when the game ends so that 
+ * it can be looked at later with the ReplayPlayer.
  * It also is in charge of a few JLabel that is passed into the constructor as parameter.
  * It will be displaying the current score, life, as well as the ranking that the game is having.
  * The reason why we put ranking in this class is because if the score is strong enough to change
  * the ranking, we want to make sure that the implementation of the new ranking would be easy and
  * stable, which means having score and ranking in the same class.
- * Also, this class will be in charge of the interaction between circle, bricks, paddle and score:
- * 1. if the circle hits a paddle, the circle should bounce back
- * 2. if the circle hits a brick, the brick should be broken and the circle should bounce back, and
- * the score should change.
  * The court also account for the user's key events, such that if the user presses left, the paddle
  * will shift left, and if the user presses right, the paddle will shift right. If the user is not 
- * pressing anything, i.e. key released, the paddle should not move.
+ * pressing anything, i.e. key released, the paddle should not move. Each key keeps the time it is
+ * pressed, and a KeyReader takes the keys of each tick, so a key pressed at any time during a tick
+ * moves the paddle on that tick, however late the tick itself runs.
  * If the user presses left or right at halting stage, the circle will follow the paddle's movement
  * until the user presses space, in which the circle will be shooted out and the game will start.
  * @author garychen
@@ -33,16 +49,10 @@ import javax.swing.*;
  */
 public class GameCourt extends JPanel {
     
-    private GameState gamestate; // The state of the game
-    
-    private int life; // Number of life the user have in a game as an int
-    private int score; // Number of points the user have in a game as an int
-    private Map<Integer, List<String>> records; // The records that a game has been played since 
-                                                // THE Creation. It has the score as the key and 
-                                                // the list of the username, who reaches the score
-                                                //as the value
-    private List<Integer> ranking; // The ranking that list the integer value of all the score the 
-                                   // records account from the highest to the lowest.
+    private GameEngine engine; // The game that is shown in this court
+    private Leaderboard records; // The records that a game has been played since THE Creation. It
+                                 // has every score from the highest to the lowest and the 
+                                 // usernames who reach each score
     
     private static final long serialVersionUID = 1L; // Default serial ID
     public static final int COURT_WIDTH = 600; // The width of the court as a final static variable
@@ -56,8 +66,34 @@ public class GameCourt extends JPanel {
     public static final String RECORD_FILEPATH = "files/BrickBreakerRecords.txt"; // The path of the
                                                                                   // file for 
                                                                                   // storing records
+    public static final boolean JOURNAL_RECORDS = true; // Whether a record is written to the 
+                                                        // journal as soon as a game ends
+    public static final boolean JOURNAL_FSYNC = true; // Whether the journal is synced to the disk
+                                                      // after every write
+    public static final String REPLAY_DIRECTORY = "files/replays"; // The folder of the replays
+    public static final boolean SAVE_REPLAYS = true; // Whether the replay of a game is saved
+                                                     // when the game ends
+    public static final int MAX_REPLAYS = 20; // The most number of replays kept, after which the
+                                              // oldest ones are deleted
+    public static final String LEVEL_PACK_FILEPATH = "files/BrickBreakerLevels.bblp"; // The pack
+                                                                                      // the maps
+                                                                                      // are saved
+                                                                                      // in
     
-    public static final int INTERVAL = 40; // The time interval the Timer has
+    public static final long LEVEL_CACHE_BYTES = 32L << 20; // The most memory the levels played
+                                                            // recently can use
+    public static final int TICK_RATE = 25; // The number of ticks per second, i.e. a tick every 
+                                            // 40 milliseconds
+    public static final int RENDER_RATE = 60; // The number of repaints per second
+    public static final int MAX_DIRTY_BALLS = 16; // The most number of circles to repaint only the
+                                                  // area around them, above which the whole 
+                                                  // court is repainted
+    public static final int OVERLAY_KEY = KeyEvent.VK_F3; // The key that shows or hides the timing
+    public static final int AUTOPILOT_KEY = KeyEvent.VK_F2; // The key that lets the autopilot 
+                                                            // play or gives the paddle back
+    public static final int KEY_QUEUE_SIZE = 256; // The most number of keys waiting for a tick
+    public static final int OVERLAY_HEIGHT = 20; // The height of the box of the timing
+    public static final int OVERLAY_WIDTH = 320; // The width of the box of the timing
     public static final int RANDOMSP = 20; // The reciprocal of the probability of getting a 
                                            // super power
     
@@ -78,28 +114,97 @@ public class GameCourt extends JPanel {
     public static final int PADDLE_VX = 6; //The x-value of the paddle in velocity
     public static final Color PADDLE_COLOR = Color.white; // The color of the paddle
     
+    // Endless mode
+    public static final int ENDLESS_SCROLL_TICKS = 2 * TICK_RATE; // The number of ticks of play
+                                                                  // between two moves of the 
+                                                                  // field in the endless mode
+    public static final int ENDLESS_LIMIT = PADDLE_Y; // The y-value where the bricks are removed
+                                                      // in the endless mode
+    public static final boolean ENDLESS_OFF_HEAP = true; // Whether the rows of the endless mode 
+                                                         // are kept outside of the heap
+    
     public static final int CIRCLERADIUS = 20; // The radius of the circle
+    public static final int MAP_LIMIT = PADDLE_Y - CIRCLERADIUS; // The y-value that the bricks of
+                                                                 // a map must be above, which is
+                                                                 // the top of the circle resting
+                                                                 // on the paddle
     public static final int CIRCLE_VX = 4; // The x-value of the velocity of the circle
     public static final int CIRCLE_VY = -4; // The x-value of the velocity of the circle. It's 
                                             // negative because the circle needs to move up 
                                             // initially so that it doesn't catch user off guard.
     public static final Color CIRCLE_COLOR = Color.white; // The color of the circle.
+    public static final int MULTIBALL_COUNT = 2; // The number of circles that come out of a
+                                                 // brick with the multi ball super power
+    public static final boolean MULTIBALL_BRICKS = false; // Whether the default bricks can have
+                                                          // the multi ball super power, which is a
+                                                          // debug setting, since it makes a super
+                                                          // power 3 in 20 instead of 2 in 20
+    public static final boolean SWEPT_COLLISION = false; // Whether the circle checks collision
+                                                         // along its path so that it won't jump
+                                                         // over bricks when it moves fast
     
-    private List<Brick> brickList; // The list of brick
-    private MovableGameObj paddle; // The paddle
-    private MovableGameObj circle; // The circle
-    private Timer timer; // The Timer
-    private JLabel scoreLabel; // The JLabel that display the current score
-    private JLabel lifeCount; // The JLabel that display the current life
+    private long seed; // The seed of the random source of the current game
+    private ReplayRecorder recorder; // The recorder of the current game
+    private final KeyQueue keyQueue = new KeyQueue(KEY_QUEUE_SIZE); // The keys waiting for a tick
+    private final KeyReader keyReader = new KeyReader(keyQueue, new KeyReader.Listener() {
+        public void keyPressed(int keyCode) {
+            otherKey(keyCode);
+        }
+    }); // Decides what the user is doing during each tick from the keys
+    private GameLoop loop; // The loop that ticks and renders the game
+    private final Object lock = new Object(); // The lock held while touching the engine
+    private int prevPaddlePx; // x-value of the paddle before the last tick
+    private int prevCirclePx; // x-value of the circle before the last tick
+    private int prevCirclePy; // y-value of the circle before the last tick
+    private Circle prevCircle; // The circle that prevCirclePx and prevCirclePy belong to
+    private volatile double alpha; // The fraction of a tick that has passed since the last tick
+    private BufferedImage brickLayer; // The image of the bricks and the background
+    private boolean layerDirty = true; // Whether the image of the bricks needs to be drawn again
+    private boolean freshLevel; // Whether no brick is broken since the bricks are changed
+    private LevelCache.Level currentLevel; // The level loaded into the court, null for a game with
+                                           // the default bricks
+    private final LevelCache levels = new LevelCache(LEVEL_CACHE_BYTES); // The levels played
+                                                                          // recently
+    private boolean fullRepaint = true; // Whether the whole court needs to be repainted
+    private Rectangle brokenArea; // The area of the bricks broken since the last repaint
+    private Rectangle lastPaddleArea; // The area of the paddle in the last repaint
+    private Rectangle lastBallArea; // The area of the circles in the last repaint
+    private volatile ActiveRenderer renderer; // The canvas the court is presented on, or null if
+                                              // the court is painted by Swing
+    private KeyListener keys; // The listener of the keys of the user
+    private PaddleController autopilot; // The controller playing instead of the user, or null
+    private final GameStats stats; // The timing of the ticks and the frames
+    private volatile boolean overlay; // Whether the timing is shown in the court
+    private Hud hud; // The score, the life and the status shown in the labels
     private JLabel highScoreLabel; // The JLabel that display the top five highest score and the 
                                    // record keepers
-    private JLabel status; // The current status of the game: running..., win, or lose
     private ScoreRecorder sr; // The ScoreRecorder variable that read and write the records
     
+    /**
+     * This constructor reads the records of the game from RECORD_FILEPATH, and journals them if
+     * JOURNAL_RECORDS is on.
+     * @param scoreLabel
+     * @param lifeCount
+     * @param highScoreLabel
+     * @param status
+     */
+    public GameCourt(JLabel scoreLabel, 
+                     JLabel lifeCount,
+                     JLabel highScoreLabel,
+                     JLabel status) {
+        this(scoreLabel, lifeCount, highScoreLabel, status,
+             new ScoreRecorder(RECORD_FILEPATH, JOURNAL_RECORDS, JOURNAL_FSYNC));
+    }
+    
     /**
      * This constructor will assign the instance variable.
-     * It will also create the Timer, which is responsible for the continuation of the game.
-     * It will also create mouse listener that accounts for the situation:
+     * The records are read and written by the given ScoreRecorder.
+     * It will create the GameEngine and listen to it so that the labels are updated when the score
+     * or the life changes, and the user is asked for a name when the game ends. The changes are 
+     * kept in a Hud, which updates the labels at most once a frame.
+     * It will also create the GameLoop, which is responsible for the continuation of the game.
+     * It will also create key listener that puts every key the user presses or releases into the
+     * queue of keys, which the next tick reads. The engine will decide what the keys do:
      * 1. When the user is playing, in which only the paddle can be controlled by the user.
      * 2. When the user is not playing, in which both the circle and the paddle will stay together 
      * and will be controlled by the user.
@@ -110,232 +215,180 @@ public class GameCourt extends JPanel {
      * @param lifeCount
      * @param highScoreLabel
      * @param status
+     * @param sr
      */
     public GameCourt(JLabel scoreLabel, 
                      JLabel lifeCount,
                      JLabel highScoreLabel,
-                     JLabel status) {
+                     JLabel status,
+                     ScoreRecorder sr) {
         // Assing JLabels
-        this.scoreLabel = scoreLabel;
-        this.lifeCount = lifeCount;
+        this.hud = new Hud(scoreLabel, lifeCount, status);
         this.highScoreLabel = highScoreLabel;
-        this.status = status;
         
-        // Creating the new ScoreRecorder and read the records to display
-        sr = new ScoreRecorder(RECORD_FILEPATH);
+        // Read the records to display
+        this.sr = sr;
         this.records = sr.getRecords();
-        this.ranking = sr.gerRanking();
         displayRanking(); // Display the ranking
         
-        // The properties of the game.
-        this.gamestate = GameState.STARTING; // The initial state of the game is starting
-        this.score = 0; // The initial score is 0.
-        this.life = 3; // The initial life is 3
+        this.stats = new GameStats(TICK_RATE);
+        
+        // The game shown in the court. The labels follow the changes in the game.
+        this.seed = System.nanoTime();
+        this.engine = new GameEngine(new Random(seed));
+        this.engine.setListener(new GameEngine.Listener() {
+            public void stateChanged(GameState state) {
+                if (state == GameState.HALTING) {
+                    // The circle is put back on the paddle, which may be far away
+                    snapPositions();
+                    hud.setStatus("Running...");
+                } else if (state == GameState.ENDING) {
+                    loop.stop(); // Stop the game until the user starts it again
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            end();
+                        }
+                    });
+                }
+            }
+            
+            public void scoreChanged(int score) {
+                hud.setScore(score);
+            }
+            
+            public void lifeChanged(int life) {
+                hud.setLife(life);
+            }
+            
+            public void brickBroken(int slot) {
+                freshLevel = false;
+                clearBrick(slot);
+            }
+            
+            public void bricksScrolled() {
+                freshLevel = false;
+                scrollBrickLayer();
+            }
+            
+            public void bricksChanged() {
+                freshLevel = true;
+                layerDirty = true;
+                fullRepaint = true;
+            }
+        });
+        
+        this.recorder = new ReplayRecorder(seed, engine);
         
-        // Declaring the objects used in the game court
-        this.brickList = new LinkedList<Brick>(); 
-        this.paddle = new Paddle(PADDLE_X, PADDLE_Y, 
-                                 PADDLE_WIDTH, PADDLE_HEIGHT, PADDLE_COLOR, 
-                                 0, COURT_WIDTH, COURT_HEIGHT);
-        this.circle = new Circle(0, 0, CIRCLERADIUS, CIRCLERADIUS, 
-                                 CIRCLE_COLOR, CIRCLE_VX, CIRCLE_VY, 
-                                 COURT_WIDTH, COURT_HEIGHT);
         // Set the look of the JPanel
         setBorder(BorderFactory.createLineBorder(COURT_COLOR));
         setBackground(Color.black);
         setFocusable(true);
         
-        // Set the timer, which will help the continuation of the game.
-        timer = new Timer(INTERVAL, new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                tick();
+        // Set the loop, which will help the continuation of the game.
+        loop = new GameLoop(new GameLoop.Listener() {
+            public void tick(long nanos) {
+                GameCourt.this.tick(nanos);
             }
-        });
+            
+            public void render(double alpha) {
+                GameCourt.this.alpha = alpha;
+                hud.flush(); // The changes of the ticks since the last frame
+                ActiveRenderer r = renderer;
+                if (r != null) {
+                    r.present();
+                } else {
+                    repaintDirty();
+                }
+            }
+        }, TICK_RATE, RENDER_RATE);
         
         // Add key listeners such that only left key, right key, and, sometimes, space will be used.
-        addKeyListener(new KeyAdapter() {
+        // AUTOPILOT_KEY lets an AutopilotController play instead of the user until it is pressed
+        // again.
+        // The key events come from the Swing thread, so they are only put into the queue of keys
+        // with the time they come, and the tick decides what they do. The time is taken on 
+        // System.nanoTime, which is the clock of the loop, instead of the time of the event.
+        keys = new KeyAdapter() {
             public void keyPressed(KeyEvent e) {
-                switch (gamestate) {
-                    // In the case of playing, only the left and right key will work to control 
-                    // paddle.
-                    case PLAYING:
-                        if (e.getKeyCode() == KeyEvent.VK_LEFT) {
-                            paddle.setVx(-PADDLE_VX);
-                        } else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
-                            paddle.setVx(PADDLE_VX);
-                        }
-                        break;
-                    // In the case of halting, both the left, right, and space key will work to 
-                    // control both the circle and the paddle.
-                    case HALTING:
-                        if (e.getKeyCode() == KeyEvent.VK_LEFT) {
-                            paddle.setVx(-PADDLE_VX);
-                            circle.setVx(-PADDLE_VX); // circle move with the paddle
-                        } else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
-                            paddle.setVx(PADDLE_VX);
-                            circle.setVx(PADDLE_VX); // circle move with the paddle
-                        } else if (e.getKeyCode() == KeyEvent.VK_SPACE) {
-                            gamestate = GameState.PLAYING;
-                            // Reset the velocity of the circle
-                            // Circle will leave the paddle
-                            circle.setVx(CIRCLE_VX);
-                            circle.setVy(CIRCLE_VY); 
-                        }
-                        break;
-                    default:
-                        break;
-                }
+                putKey(e.getKeyCode(), true);
             }
             
             // When the key is released, the paddle should be stop
             public void keyReleased(KeyEvent e) {
-                paddle.setVx(0);
-                if (gamestate == GameState.HALTING) {
-                    circle.setVx(0); // the circle will be stop in halting stage
-                }
+                putKey(e.getKeyCode(), false);
             }
-        });
+        };
+        addKeyListener(keys);
     }
     
     /**
-     * a method that will generate a SuperPower when called at random based on the probability given
-     * as a static final variable.
-     * @return
+     * Present the court on the given canvas from now on, or go back to being painted by Swing if
+     * it is null. The canvas also takes the keys of the user, since it is the one that is shown.
+     * @param r
      */
-    private SuperPower rollSP() {
-        int ran = (int) (Math.random() * 20);
-        SuperPower sp = null;
-        if (ran == 1) {
-            sp = SuperPower.LONGERPADDLE; // 1/20 chance will Longer Paddle be the super power
-        } else if (ran == 2) {
-            sp = SuperPower.SHORTERPADDLE;// 1/20 chance will shorter Paddle be the super power
+    public void setRenderer(ActiveRenderer r) {
+        if (renderer != null) {
+            renderer.removeKeyListener(keys);
         }
-        return sp;
-    }
-    
-    /**
-     * restart is a method that will only be called when the current game state is starting.
-     * Specifically, it will declare a new bricklist, it will also, depending on the boolean 
-     * parameter, generate and store bricks by default.
-     * It then will set the initial position, velocity, and width of the paddle and circle
-     * It will also set the properties and JLabel in the court to be default.
-     * @param defaultBricks
-     */
-    private void restart(boolean defaultBricks) {
-        brickList = new LinkedList<Brick>();
-        if (defaultBricks) {
-            for (int i = 0; i < BRICK_LOWER_LIMIT / BRICK_HEIGHT; i++) {
-                for (int j = 0; j < COURT_WIDTH / BRICK_WIDTH; j++) {
-                    SuperPower sp = rollSP(); // Roll a super power
-                    Color brickColor;
-                    if (sp == null) { // If no superPower is added, the brick color will be default.
-                        brickColor = BRICK_COLOR;
-                    } else { // If superPower is added, the brick color will be special color.
-                        brickColor = SPBRICK_COLOR;
-                    }
-                    brickList.add(new Brick(j * BRICK_WIDTH, i * BRICK_HEIGHT,
-                            BRICK_WIDTH, BRICK_HEIGHT, brickColor, 
-                            sp));
-                }
-            } 
+        if (r != null) {
+            r.addKeyListener(keys);
+        }
+        synchronized (lock) {
+            renderer = r;
+            brickLayer = null; // Made again to be compatible with the new surface
+            fullRepaint = true;
         }
-        
-        // set paddle to default position, width, height, and velocity
-        paddle.setPx(PADDLE_X);
-        paddle.setPy(PADDLE_Y);
-        paddle.setWidth(PADDLE_WIDTH);
-        paddle.setVx(0);
-        
-        // Reset the properties in the court
-        life = 3; 
-        score = 0;
-        
-        // reset the labels in the court
-        status.setText("Running...");
-        scoreLabel.setText("" + score);
-        lifeCount.setText("" + life);     
-        reset(); // reset circle and change the game state to halting
-        requestFocusInWindow(); // request the focus on window.
     }
     
     /**
-     * This method will only be called if the game state is playing.
-     * Specifically, the paddle and the circle will move, it will also account of bounce and hitting
-     * objects
+     * return the timing of the ticks and the frames of the court
+     * @return
      */
-    private void play() {
-        // Move both the paddle and circle
-        paddle.move();
-        circle.move();
-        
-        // Accounts for the situation when the circle is below the y-bound, in which the user loses 
-        // a life and possibly lose the game if he has no life.
-        if (circle.getPy() >= COURT_HEIGHT) {
-            life--;
-            lifeCount.setText("" + life); // reset the label for number of life
-            if (life > 0) {
-                gamestate = GameState.RESETING;
-            } else {
-                gamestate = GameState.ENDING;
-            }
-        } else {
-            Direction d = circle.hitObj(paddle);
-            if (d == null) { // if the circle did not hit the paddle
-                for (int i = 0; i < brickList.size(); i++) {
-                    Brick b = brickList.get(i);
-                    d = circle.hitObj(brickList.get(i));
-                    if (d != null) { // if the paddle hit the brick
-                        SuperPower sp = b.getSP();
-                        // Assign super power
-                        if (sp == SuperPower.LONGERPADDLE) {
-                            paddle.setWidth(PADDLE_LONGERWIDTH);
-                            
-                        } else if (sp == SuperPower.SHORTERPADDLE) {
-                            paddle.setWidth(PADDLE_SHORTERWIDTH);
-                        }
-                        brickList.remove(i);
-                        score += SCOREINCREMENT;
-                        scoreLabel.setText("" + score);
-                        break;
-                    }
-                }
-            }
-            circle.bounce(d);
-            if (brickList.isEmpty()) { // Determine if the user wins or not.
-                gamestate = GameState.ENDING;
-            }
-        }
+    public GameStats getStats() {
+        return stats;
     }
     
     /**
-     * This method is only called during the reseting game state or at starting state as the 
-     * position of the circle will be reset.
+     * A helper method that returns the component the court is shown on
+     * @return
      */
-    private void reset() {
-        circle.setPx(paddle.getPx() + PADDLE_WIDTH / 2 - CIRCLERADIUS / 2);
-        circle.setPy(paddle.getPy() - CIRCLERADIUS);
-        circle.setVx(0);// Initially, ball should be on the board
-        circle.setVy(0);
-        gamestate = GameState.HALTING; // State will change to halting to wait for user's move
+    private Component getSurface() {
+        ActiveRenderer r = renderer;
+        return r != null ? r : this;
     }
     
     /**
      * This method is only called when the game ends.
-     * When the game ends, the timer is stop, and the game will ask the user for the username in 
-     * order to record the score.
+     * When the game ends, the loop is stopped, and the game will ask the user for the username in 
+     * order to record the score. Since it shows a dialog, it is run on the Swing thread.
      */
     private void end() {
-        timer.stop();
+        boolean won;
+        int score;
+        ReplayRecorder finished;
+        synchronized (lock) {
+            won = engine.isWon();
+            score = engine.getScore();
+            finished = recorder;
+        }
+        saveReplay(finished);
+        
+        // Where the score would place among the records, including itself
+        int rank = records.getRank(score);
+        int total = records.size() + 1;
+        String placed = String.format("You placed #%d of %d (top %.1f%%)\n", rank, total,
+                                      Math.min(100.0 * rank / total, 100));
         
         // Determine whether the player wins or not and will print message accordingly
-        String message = "Please enter your name to save your record.";
-        if (brickList.isEmpty()) {
-            status.setText("You Win!");
+        String message = placed + "Please enter your name to save your record.";
+        if (won) {
+            hud.setStatus("You Win!");
             message = "Congratulation! You Win!\n" + message;
         } else {
-            status.setText("You Lose!");
+            hud.setStatus("You Lose!");
             message = "You Lose!\n" + message;
         }
+        hud.flush(); // The loop is stopped, so nothing else will update the labels
         
         // Acquire the username
         String scoreUser = JOptionPane.showInputDialog(message);
@@ -350,55 +403,218 @@ public class GameCourt extends JPanel {
         // score will not be counted
         
         if (scoreUser != null) { // If the user successfully enters the username
-            if (records.containsKey(score)) { // If the scores already exists in records
-                List<String> l = records.get(score);
-                l.add(scoreUser);
-                Collections.sort(l); // the name list will be sort in alphabetical order
+            // Saved right away if there is a journal. The ranking is only displayed again if the
+            // top scores change
+            if (sr.submit(score, scoreUser)) {
+                displayRanking();
+            }
+        }
+    }
+    
+    /**
+     * A helper method that puts a key into the queue of keys with the time it comes. It is called
+     * on the Swing thread.
+     * @param keyCode
+     * @param pressed
+     */
+    private void putKey(int keyCode, boolean pressed) {
+        keyQueue.offer(System.nanoTime(), keyCode, pressed); // Only a press is ever dropped
+    }
+
+    /**
+     * A helper method that is told about the keys pressed that are not arrows or space, which
+     * take effect right away: the autopilot key and the timing overlay key.
+     * @param keyCode
+     */
+    private void otherKey(int keyCode) {
+        if (keyCode == AUTOPILOT_KEY) {
+            autopilot = autopilot == null ? new AutopilotController(new Random()) : null;
+        } else if (keyCode == OVERLAY_KEY) {
+            overlay = !overlay;
+            fullRepaint = true; // Clear the timing when it is hidden
+        }
+    }
+
+    /**
+     * The main method of the court, which is called by the loop on its own thread. It passes what 
+     * the user is doing during the tick that ends at the given time to the engine, which will move
+     * the game according to the current game state.
+     * The positions before the tick are kept so that the painting can draw in between.
+     * The time of handling the input, including waiting for the lock, and the time of stepping
+     * the engine are recorded in the stats.
+     * @param nanos
+     */
+    private void tick(long nanos) {
+        long start = System.nanoTime();
+        synchronized (lock) {
+            snapPositions();
+            GameInput keyInput = keyReader.read(nanos); // The keys are read even for the autopilot
+            GameInput input = autopilot != null ? autopilot.control(engine) : keyInput;
+            recorder.record(input);
+            long tested = engine.getBricksTested();
+            long hit = engine.getBricksHit();
+            long stepStart = System.nanoTime();
+            engine.step(input);
+            long end = System.nanoTime();
+            stats.recordTick(stepStart - start, end - stepStart, 
+                             engine.getBricksTested() - tested, engine.getBricksHit() - hit);
+        }
+    }
+    
+    /**
+     * A helper method that sets the positions before the tick to be the current positions, so that
+     * the painting will not draw the objects moving across the court when they are teleported.
+     */
+    private void snapPositions() {
+        prevPaddlePx = engine.getPaddle().getPx();
+        prevCirclePx = engine.getCircle().getPx();
+        prevCirclePy = engine.getCircle().getPy();
+        prevCircle = engine.getCircle();
+    }
+    
+    /**
+     * A helper method that returns the x-value of the given first circle before the last tick.
+     * When the first circle falls out, another circle becomes the first one during the tick, and
+     * it uses where it was before its own last move instead of where the lost one was.
+     * @param circle
+     * @return
+     */
+    private int circlePrevPx(Circle circle) {
+        return circle == prevCircle ? prevCirclePx : circle.getPrevPx();
+    }
+    
+    /**
+     * A helper method that returns the y-value of the given first circle before the last tick, in
+     * the same way as circlePrevPx
+     * @param circle
+     * @return
+     */
+    private int circlePrevPy(Circle circle) {
+        return circle == prevCircle ? prevCirclePy : circle.getPrevPy();
+    }
+    
+    /**
+     * A helper method that clears the place of a broken brick from the image of the bricks, and 
+     * adds it to the area to repaint.
+     * @param slot
+     */
+    private void clearBrick(int slot) {
+        BrickField bricks = engine.getBricks();
+        Rectangle r = new Rectangle(bricks.getPx(slot), bricks.getPy(slot), 
+                                    BRICK_WIDTH, BRICK_HEIGHT);
+        if (brickLayer != null && !layerDirty) {
+            Graphics g = brickLayer.getGraphics();
+            g.setColor(COURT_COLOR);
+            g.fillRect(r.x, r.y, r.width, r.height);
+            g.dispose();
+        }
+        brokenArea = brokenArea == null ? r : brokenArea.union(r);
+    }
+    
+    /**
+     * A helper method that moves the image of the bricks down by one row after the field of the
+     * endless mode moves, and only draws the new row on top, instead of drawing every brick again.
+     * The row that moves to ENDLESS_LIMIT is not copied, since its bricks are removed.
+     */
+    private void scrollBrickLayer() {
+        if (brickLayer != null && !layerDirty) {
+            Graphics g = brickLayer.getGraphics();
+            g.copyArea(0, 0, COURT_WIDTH, ENDLESS_LIMIT - BRICK_HEIGHT, 0, BRICK_HEIGHT);
+            g.setColor(COURT_COLOR);
+            g.fillRect(0, 0, COURT_WIDTH, BRICK_HEIGHT);
+            engine.getBricks().drawRow(g, 0);
+            g.dispose();
+        }
+        fullRepaint = true; // Every brick is somewhere else
+    }
+    
+    /**
+     * A helper method that draws the image of the bricks again if needed. The image is compatible
+     * with the screen when the court is shown so that drawing it is fast.
+     * If no brick is broken yet in a level that is loaded, the image of the level is taken from
+     * the levels played recently, so a level played again is drawn all at once.
+     */
+    private void ensureBrickLayer() {
+        GraphicsConfiguration gc = getSurface().getGraphicsConfiguration();
+        if (brickLayer == null) {
+            if (gc != null) {
+                brickLayer = gc.createCompatibleImage(COURT_WIDTH, COURT_HEIGHT);
+            } else {
+                brickLayer = new BufferedImage(COURT_WIDTH, COURT_HEIGHT, 
+                                               BufferedImage.TYPE_INT_RGB);
+            }
+            layerDirty = true;
+        }
+        if (layerDirty) {
+            Graphics g = brickLayer.getGraphics();
+            g.setColor(COURT_COLOR);
+            g.fillRect(0, 0, COURT_WIDTH, COURT_HEIGHT);
+            BrickField bricks = engine.getBricks();
+            if (freshLevel && currentLevel != null && currentLevel.matches(bricks)) {
+                g.drawImage(currentLevel.getImage(), 0, 0, null);
             } else {
-                // Add a new name list if there isn't a current score on the records.
-                List<String> l = new LinkedList<String>();
-                l.add(scoreUser);
-                records.put(score, l);
-                ranking.add(score);
-                Collections.sort(ranking, Collections.reverseOrder()); 
-                // the name list will be sort in alphabetical order
+                bricks.draw(g);
             }
-            displayRanking();
+            g.dispose();
+            layerDirty = false;
         }
     }
     
     /**
-     * The main method of the court for distributing the operation 
-     * according to the current game state.
+     * A helper method that returns the area that a moving object covers from where it was before
+     * the last tick to where it is now, which is where it can be drawn in this frame.
+     * @param prevPx
+     * @param prevPy
+     * @param o
+     * @return
      */
-    private void tick() {
-        switch (gamestate) {
-            case STARTING:
-                restart(true);
-                break;
-            case PLAYING:
-                play();
-                break;
-            case RESETING:
-                reset();
-                break;
-            case ENDING:
-                end();
-                break;
-            case HALTING: // When halt, both paddle and circle will move according to the vx, vy of 
-                          // the two objects so that they can move simultaneously
-                paddle.move();
-                int px = paddle.getPx();
-                if (px == 0 || px + GameCourt.PADDLE_WIDTH == GameCourt.COURT_WIDTH) {
-                    circle.setPx(px + GameCourt.PADDLE_WIDTH / 2 - GameCourt.CIRCLERADIUS / 2);
-                } else {
-                    circle.move();
-                }
-                break;
-            default:
-                break;
+    private static Rectangle sweptArea(int prevPx, int prevPy, GameObj o) {
+        int x = Math.min(prevPx, o.getPx());
+        int y = Math.min(prevPy, o.getPy());
+        int w = Math.abs(prevPx - o.getPx()) + o.getWidth();
+        int h = Math.abs(prevPy - o.getPy()) + o.getHeight();
+        return new Rectangle(x - 1, y - 1, w + 2, h + 2); // 1 more pixel for rounding
+    }
+    
+    /**
+     * A helper method that asks Swing to repaint only the areas that change in this frame: where 
+     * the paddle and the circles are in this frame and where they were in the last frame, and the
+     * bricks that are broken. The whole court is repainted when the bricks are all different, or 
+     * when there are too many circles for it to be worth it.
+     */
+    private void repaintDirty() {
+        synchronized (lock) {
+            List<Circle> balls = engine.getBalls();
+            if (fullRepaint || balls.size() > MAX_DIRTY_BALLS) {
+                fullRepaint = false;
+                brokenArea = null;
+                lastPaddleArea = null;
+                lastBallArea = null;
+                repaint();
+                return;
+            }
+            if (brokenArea != null) {
+                repaint(brokenArea);
+                brokenArea = null;
+            }
+            Paddle paddle = engine.getPaddle();
+            Rectangle paddleArea = sweptArea(prevPaddlePx, paddle.getPy(), paddle);
+            repaint(lastPaddleArea == null ? paddleArea : paddleArea.union(lastPaddleArea));
+            lastPaddleArea = paddleArea;
+            
+            Circle circle = engine.getCircle();
+            Rectangle ballArea = sweptArea(circlePrevPx(circle), circlePrevPy(circle), circle);
+            for (int i = 1; i < balls.size(); i++) {
+                Circle c = balls.get(i);
+                ballArea = ballArea.union(sweptArea(c.getPrevPx(), c.getPrevPy(), c));
+            }
+            repaint(lastBallArea == null ? ballArea : ballArea.union(lastBallArea));
+            lastBallArea = ballArea;
+            
+            if (overlay) {
+                repaint(0, COURT_HEIGHT - OVERLAY_HEIGHT, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+            }
         }
-        repaint();
     }
     
     /**
@@ -408,11 +624,58 @@ public class GameCourt extends JPanel {
     public void paintComponent(Graphics g) {
         if (g != null) {
             super.paintComponent(g);
-            for (Brick b: brickList) {
-                b.draw(g);
+            drawScene(g);
+        }
+    }
+    
+    /**
+     * Draw everything in the court with the given graphics, which is used both by Swing and by an
+     * ActiveRenderer.
+     * The bricks are drawn from the image of the bricks, which only covers the area that is asked 
+     * to be repainted.
+     * The paddle and the circle are drawn in between where they were in the last two ticks 
+     * according to how much of a tick has passed, so that they move smoothly even when there are 
+     * more repaints than ticks.
+     * The time it takes is recorded in the stats, and the timing is drawn at the bottom if it is
+     * shown.
+     * @param g
+     */
+    public void drawScene(Graphics g) {
+        if (g != null) {
+            synchronized (lock) {
+                long start = System.nanoTime();
+                double a = alpha;
+                Paddle paddle = engine.getPaddle();
+                Circle circle = engine.getCircle();
+                ensureBrickLayer();
+                g.drawImage(brickLayer, 0, 0, null);
+                int dx = (int) Math.round((prevPaddlePx - paddle.getPx()) * (1 - a));
+                g.translate(dx, 0);
+                paddle.draw(g);
+                g.translate(-dx, 0);
+                dx = (int) Math.round((circlePrevPx(circle) - circle.getPx()) * (1 - a));
+                int dy = (int) Math.round((circlePrevPy(circle) - circle.getPy()) * (1 - a));
+                g.translate(dx, dy);
+                circle.draw(g);
+                g.translate(-dx, -dy);
+                // The other circles use where they were before their own last move
+                List<Circle> balls = engine.getBalls();
+                for (int i = 1; i < balls.size(); i++) {
+                    Circle c = balls.get(i);
+                    dx = (int) Math.round((c.getPrevPx() - c.getPx()) * (1 - a));
+                    dy = (int) Math.round((c.getPrevPy() - c.getPy()) * (1 - a));
+                    g.translate(dx, dy);
+                    c.draw(g);
+                    g.translate(-dx, -dy);
+                }
+                if (overlay) {
+                    g.setColor(COURT_COLOR);
+                    g.fillRect(0, COURT_HEIGHT - OVERLAY_HEIGHT, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+                    g.setColor(Color.green);
+                    g.drawString(stats.overlayText(), 5, COURT_HEIGHT - 6);
+                }
+                stats.recordFrame(start, System.nanoTime() - start);
             }
-            paddle.draw(g);
-            circle.draw(g);
         }
     }
     
@@ -425,32 +688,118 @@ public class GameCourt extends JPanel {
     }
     
     /**
-     * Stop the timer and thus the game
+     * Stop the loop and thus the game
      */
     public void pause() {
-        timer.stop();
+        loop.stop();
+    }
+    
+    /**
+     * A helper method that starts a new game with the default bricks from a new seed. It is called
+     * while holding the lock.
+     */
+    private void newGame() {
+        seed = System.nanoTime();
+        engine.setSeed(seed);
+        engine.restart(true);
+        currentLevel = null; // The default bricks are new every game, so they are never kept
+        recorder = new ReplayRecorder(seed, engine);
+    }
+    
+    /**
+     * Start a new game in the endless mode, where the bricks keep moving down and new rows come
+     * from the top, or in the normal mode, and start the loop.
+     * @param endless
+     */
+    public void setEndless(boolean endless) {
+        synchronized (lock) {
+            engine.setEndless(endless);
+            newGame();
+        }
+        hud.flush(); // The loop may not be running
+        start();
     }
     
     /**
-     * Start the timer and start the game by either continuing to play or start a new game
+     * Start the loop and start the game by either continuing to play or start a new game
      */
     public void start() {
-        timer.start();
-        requestFocusInWindow();
-        if (gamestate == GameState.ENDING) { // Start a new game if needed.
-            restart(true);
+        synchronized (lock) {
+            if (engine.getState() == GameState.ENDING) { // Start a new game if needed.
+                newGame();
+            }
+            stats.pause(); // The time the loop is stopped is not a long frame
+        }
+        getSurface().requestFocusInWindow();
+        loop.start();
+    }
+    
+    /**
+     * set the number of ticks per second, which is how fast the game goes
+     * @param tickRate
+     */
+    public void setTickRate(int tickRate) {
+        loop.setTickRate(tickRate);
+        stats.setTickRate(tickRate);
+    }
+    
+    /**
+     * set the number of repaints per second, which does not change how fast the game goes
+     * @param renderRate
+     */
+    public void setRenderRate(int renderRate) {
+        loop.setRenderRate(renderRate);
+    }
+    
+    /**
+     * Given a field of bricks, load them into the court to play. Only the bricks in the area that
+     * can be played are kept, since a map from the customizer can be much larger than the court.
+     * If the same bricks are played recently, a copy of the level that is kept is played instead,
+     * which has its image ready. Otherwise the level is kept, so that playing it again takes no
+     * time to build. Only the levels loaded here are kept, since the default bricks of a new game
+     * are never the same twice.
+     * It returns false, without loading anything, if there is no brick to play in the area.
+     * @param bf
+     * @return
+     */
+    public boolean load(BrickField bf) {
+        if (bf == null) {
+            return false;
+        }
+        bf = bf.clipToCourt();
+        if (bf.isEmpty()) {
+            return false;
+        }
+        LevelCache.Level level = levels.get(bf);
+        if (level == null) {
+            level = levels.put(bf, getSurface().getGraphicsConfiguration());
         }
+        synchronized (lock) {
+            currentLevel = level;
+            engine.load(level.newField());
+            recorder = new ReplayRecorder(seed, engine);
+        }
+        hud.flush(); // The loop may not be running
+        return true;
     }
     
     /**
-     * Given a list of bricks, load them into the court to play.
-     * @param lb
+     * A helper method that saves the replay of a game into the folder of the replays, named after 
+     * the time it is saved, if SAVE_REPLAYS is on. Only the last MAX_REPLAYS replays are kept.
+     * @param r
      */
-    public void load(List<Brick> lb) {
-        if (lb != null) {
-            restart(false);
-            brickList = lb;
+    private void saveReplay(ReplayRecorder r) {
+        if (!SAVE_REPLAYS) {
+            return;
+        }
+        File file = new File(REPLAY_DIRECTORY, "replay-" + System.currentTimeMillis() + ".bbr");
+        try {
+            r.save(file);
+        } catch (IOException e) {
+            System.err.println("Failed to save the replay");
+            return;
         }
+        ReplayRecorder.prune(new File(REPLAY_DIRECTORY), MAX_REPLAYS);
     }
     
     /**
@@ -460,17 +809,19 @@ public class GameCourt extends JPanel {
     private void displayRanking() {
         // JLabel's indentation using html.
         String displayRanking = "<html>";
-        for (int i = 0; i < Math.min(5, ranking.size()); i++) {
-            int displayScore = ranking.get(i);
-            displayRanking += 
-                String.format("%d.%s %d<br/>", i + 1, records.get(displayScore), displayScore);
+        List<Integer> top = records.getTop();
+        for (int i = 0; i < top.size(); i++) {
+            int displayScore = top.get(i);
+            displayRanking += String.format("%d.%s %d<br/>", i + 1, records.getNames(displayScore),
+                                            displayScore);
         }
         displayRanking += "<html>";
         highScoreLabel.setText(displayRanking);
     }
     
     /**
-     * Use the ScoreRecorder to write the records back into the file.
+     * Use the ScoreRecorder to write the records back into the file, or to finish writing the 
+     * journal if there is one.
      */
     public void writeRecords() {
         sr.writeRecords(records);
@@ -0,0 +1,721 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * GameEngine is the game itself without anything to display. It owns the state of the game, the
+ * paddle, the circle, the bricks, the score and the life, and moves all of them forward one tick
+ * at a time through the step method. Since it does not touch Swing at all, it can be run on a
+ * machine without a display, e.g. to simulate a lot of games.
+ * Whatever is showing the game, such as the GameCourt, tells the engine what the user is doing
+ * through a GameInput on each step, and listens to the changes of the game through a Listener.
+ * There can be more than one circle in the court at the same time, either from a brick with the 
+ * multi ball super power or from addBall. The first circle is the one that sits on the paddle 
+ * before it is launched, and a life is only lost when the last circle falls out of the court. 
+ * Since the BrickField only checks the slots around each circle, and the paddle is a single 
+ * object, the time of a tick only grows with the number of circles, not with the number of 
+ * circles times the number of bricks.
+ * Each engine has its own random source for rolling the super powers, so that many engines can 
+ * run on different threads without sharing one, and a game can be played again from its seed.
+ * The whole state of the game can be saved into bytes and restored later, which is used by the 
+ * replays. The random source is not part of the state, since it is only used when the default 
+ * bricks are created at the start of a game.
+ * In the endless mode, the bricks come from a BrickStream instead, and the whole field moves down
+ * by one row every GameCourt.ENDLESS_SCROLL_TICKS ticks of play, with a new row from the stream
+ * on top. The bricks that reach GameCourt.ENDLESS_LIMIT are removed, so the field never grows, and
+ * the game only ends when the user has no life left. The place of the stream is part of the 
+ * state, so an endless game can be replayed too.
+ * To move many ticks at once, such as when a replay is fast forwarded, advance jumps over the 
+ * ticks in which nothing but moving happens, instead of stepping each of them.
+ * The engine is not thread safe, so whoever runs it should make sure only one thread touches it at
+ * a time.
+ * @author garychen
+ *
+ */
+public class GameEngine {
+
+    /**
+     * Listener will be told whenever something that should be shown to the user changes.
+     * All the methods are called on the thread that steps the engine.
+     * @author garychen
+     *
+     */
+    public interface Listener {
+        void stateChanged(GameState state);
+
+        void scoreChanged(int score);
+
+        void lifeChanged(int life);
+
+        void brickBroken(int slot);
+
+        void bricksChanged();
+
+        void bricksScrolled();
+    }
+
+    private GameState gamestate; // The state of the game
+    private int life; // Number of life the user have in a game as an int
+    private int score; // Number of points the user have in a game as an int
+    private BrickField bricks; // The bricks in the court, kept as slots in a grid
+    private Paddle paddle; // The paddle
+    private Circle circle; // The first circle, which is the one that sits on the paddle
+    private List<Circle> balls; // All the circles in the court, with the first circle at index 0
+    private List<Circle> spawned; // The circles that come out during a tick, to be added after it
+    private Listener listener; // The listener of the changes, null if there isn't one
+    private Random random; // The random source of the super powers
+    private long bricksTested; // The number of bricks tested for a hit since the engine is created
+    private long bricksHit; // The number of bricks hit since the engine is created
+    private boolean endless; // Whether the next game started with the default bricks is endless
+    private BrickStream stream; // The rows of the endless game, or null if it is not endless
+    private int scrollTick; // The number of ticks of play since the field last moved down
+
+    /**
+     * The constructor creates an engine with a random source that is not seeded.
+     */
+    public GameEngine() {
+        this(new Random());
+    }
+
+    /**
+     * The constructor creates the paddle, the circle and an empty field of bricks. The game starts
+     * at the starting state, so the first step will create the default bricks with the super 
+     * powers rolled from the given random source.
+     * @param random
+     */
+    public GameEngine(Random random) {
+        this.random = random;
+        this.gamestate = GameState.STARTING; // The initial state of the game is starting
+        this.score = 0; // The initial score is 0.
+        this.life = 3; // The initial life is 3
+        this.bricks = BrickField.forCourt();
+        this.paddle = new Paddle(GameCourt.PADDLE_X, GameCourt.PADDLE_Y,
+                                 GameCourt.PADDLE_WIDTH, GameCourt.PADDLE_HEIGHT,
+                                 GameCourt.PADDLE_COLOR, 0,
+                                 GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+        this.circle = new Circle(0, 0, GameCourt.CIRCLERADIUS, GameCourt.CIRCLERADIUS,
+                                 GameCourt.CIRCLE_COLOR, GameCourt.CIRCLE_VX, GameCourt.CIRCLE_VY,
+                                 GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+        this.circle.setSwept(GameCourt.SWEPT_COLLISION);
+        this.balls = new ArrayList<Circle>();
+        this.balls.add(circle);
+        this.spawned = new ArrayList<Circle>();
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the current state of the game
+     * @return
+     */
+    public GameState getState() {
+        return gamestate;
+    }
+
+    /**
+     * return the number of life left
+     * @return
+     */
+    public int getLife() {
+        return life;
+    }
+
+    /**
+     * return the current score
+     * @return
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * return the number of bricks tested for a hit since the engine is created
+     * @return
+     */
+    public long getBricksTested() {
+        return bricksTested;
+    }
+
+    /**
+     * return the number of bricks hit since the engine is created
+     * @return
+     */
+    public long getBricksHit() {
+        return bricksHit;
+    }
+
+    /**
+     * return the field of bricks
+     * @return
+     */
+    public BrickField getBricks() {
+        return bricks;
+    }
+
+    /**
+     * return the paddle
+     * @return
+     */
+    public Paddle getPaddle() {
+        return paddle;
+    }
+
+    /**
+     * return the first circle
+     * @return
+     */
+    public Circle getCircle() {
+        return circle;
+    }
+    
+    /**
+     * return all the circles in the court, with the first circle at index 0. The list should not 
+     * be changed by the caller.
+     * @return
+     */
+    public List<Circle> getBalls() {
+        return balls;
+    }
+
+    /**
+     * return whether the user has broken all the bricks
+     * @return
+     */
+    public boolean isWon() {
+        return stream == null && bricks.isEmpty();
+    }
+
+    /**
+     * return whether the current game is endless
+     * @return
+     */
+    public boolean isEndless() {
+        return stream != null;
+    }
+
+    /**
+     * return the rows of the current endless game, or null if it is not endless
+     * @return
+     */
+    public BrickStream getStream() {
+        return stream;
+    }
+
+    /*** SETTERS **********************************************************************************/
+    /**
+     * set the listener that will be told about the changes of the game
+     * @param listener
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * set whether the next game started with the default bricks is endless
+     * @param endless
+     */
+    public void setEndless(boolean endless) {
+        this.endless = endless;
+    }
+
+    /**
+     * A helper method that changes the state and tells the listener if it is different
+     * @param state
+     */
+    private void setState(GameState state) {
+        if (gamestate != state) {
+            gamestate = state;
+            if (listener != null) {
+                listener.stateChanged(state);
+            }
+        }
+    }
+
+    /**
+     * A helper method that changes the score and tells the listener
+     * @param score
+     */
+    private void setScore(int score) {
+        this.score = score;
+        if (listener != null) {
+            listener.scoreChanged(score);
+        }
+    }
+
+    /**
+     * A helper method that changes the life and tells the listener
+     * @param life
+     */
+    private void setLife(int life) {
+        this.life = life;
+        if (listener != null) {
+            listener.lifeChanged(life);
+        }
+    }
+
+    /**
+     * A helper method that tells the listener that the whole field of bricks is different
+     */
+    private void fireBricksChanged() {
+        if (listener != null) {
+            listener.bricksChanged();
+        }
+    }
+
+    /**
+     * a method that will generate a SuperPower when called at random based on the probability given
+     * as a static final variable.
+     * @return
+     */
+    private SuperPower rollSP() {
+        int ran = random.nextInt(GameCourt.RANDOMSP);
+        SuperPower sp = null;
+        if (ran == 1) {
+            sp = SuperPower.LONGERPADDLE; // 1/20 chance will Longer Paddle be the super power
+        } else if (ran == 2) {
+            sp = SuperPower.SHORTERPADDLE;// 1/20 chance will shorter Paddle be the super power
+        } else if (ran == 3 && GameCourt.MULTIBALL_BRICKS) {
+            sp = SuperPower.MULTIBALL; // 1/20 chance will multi ball be the super power if it is on
+        }
+        return sp;
+    }
+
+    /**
+     * The main method of the engine. It first applies what the user is doing, and then moves the
+     * game forward by one tick according to the current game state.
+     * @param input
+     */
+    public void step(GameInput input) {
+        applyInput(input);
+        update();
+    }
+
+    /**
+     * Move the game forward by as many ticks as possible at once, but no more than the given
+     * number, with the same input on every tick, and return the number of ticks moved. The game
+     * ends up exactly where stepping the same number of ticks would bring it.
+     * While the game is being played, the ticks until the next impact that TimeOfImpact finds are
+     * jumped over at once: the paddle and the circles are moved by all of those ticks in one go.
+     * Otherwise, such as when a circle is hitting something or a circle added by addBall has not
+     * joined yet, it steps one tick.
+     * @param input
+     * @param maxTicks
+     * @return the number of ticks moved, which is at least 1 if maxTicks is
+     */
+    public int advance(GameInput input, int maxTicks) {
+        if (maxTicks <= 0) {
+            return 0;
+        }
+        applyInput(input);
+        int n = 0;
+        // A circle that is added waits to join until a tick is played, so nothing is jumped then
+        if (gamestate == GameState.PLAYING && (stream != null || !bricks.isEmpty())
+                && spawned.isEmpty()) {
+            n = Math.min(maxTicks, TimeOfImpact.plainTicks(balls, paddle, bricks));
+            if (stream != null) { // The field must not move down in between
+                n = Math.min(n, GameCourt.ENDLESS_SCROLL_TICKS - 1 - scrollTick);
+            }
+        }
+        if (n <= 0) {
+            update();
+            return 1;
+        }
+        // The paddle stops at the walls, so it ends up where it is clipped after all the ticks
+        paddle.setPx((int) Math.max(0, Math.min((long) paddle.getPx() + (long) n * paddle.getVx(),
+                                                paddle.getCourtWidth())));
+        for (int i = 0; i < balls.size(); i++) {
+            Circle c = balls.get(i);
+            int px = c.getPx() + (n - 1) * c.getVx();
+            int py = c.getPy() + (n - 1) * c.getVy();
+            c.setPrevPosition(px, py); // Where it is before the last tick
+            c.setPx(px + c.getVx());
+            c.setPy(py + c.getVy());
+        }
+        if (stream != null) {
+            scrollTick += n;
+        }
+        return n;
+    }
+
+    /**
+     * Move the game forward by the given number of ticks with the same input on every tick, as
+     * fast as possible. It is the same as stepping the given number of ticks.
+     * @param input
+     * @param ticks
+     */
+    public void fastForward(GameInput input, int ticks) {
+        while (ticks > 0) {
+            ticks -= advance(input, ticks);
+        }
+    }
+
+    /**
+     * A helper method that moves the game forward by one tick according to the current game state
+     */
+    private void update() {
+        switch (gamestate) {
+            case STARTING:
+                restart(true);
+                break;
+            case PLAYING:
+                play();
+                break;
+            case RESETING:
+                reset();
+                break;
+            case HALTING: // When halt, both paddle and circle will move according to the vx, vy of
+                          // the two objects so that they can move simultaneously
+                paddle.move();
+                int px = paddle.getPx();
+                if (px == 0 || px + GameCourt.PADDLE_WIDTH == GameCourt.COURT_WIDTH) {
+                    circle.setPx(px + GameCourt.PADDLE_WIDTH / 2 - GameCourt.CIRCLERADIUS / 2);
+                } else {
+                    circle.move();
+                }
+                break;
+            default: // Nothing happens once the game ends until it is restarted
+                break;
+        }
+    }
+
+    /**
+     * A helper method that changes the velocity of the paddle and the circle according to the
+     * input:
+     * 1. When the user is playing, only the paddle can be controlled by the user.
+     * 2. When the user is not playing, both the circle and the paddle will stay together and will
+     * be controlled by the user, until the circle is launched.
+     * @param input
+     */
+    private void applyInput(GameInput input) {
+        if (input == null) {
+            input = GameInput.NONE;
+        }
+        switch (gamestate) {
+            case PLAYING:
+                if (input == GameInput.LEFT) {
+                    paddle.setVx(-GameCourt.PADDLE_VX);
+                } else if (input == GameInput.RIGHT) {
+                    paddle.setVx(GameCourt.PADDLE_VX);
+                } else if (input == GameInput.NONE) {
+                    paddle.setVx(0);
+                }
+                break;
+            case HALTING:
+                if (input == GameInput.LEFT) {
+                    paddle.setVx(-GameCourt.PADDLE_VX);
+                    circle.setVx(-GameCourt.PADDLE_VX); // circle move with the paddle
+                } else if (input == GameInput.RIGHT) {
+                    paddle.setVx(GameCourt.PADDLE_VX);
+                    circle.setVx(GameCourt.PADDLE_VX); // circle move with the paddle
+                } else if (input == GameInput.NONE) {
+                    paddle.setVx(0);
+                    circle.setVx(0); // the circle will be stop in halting stage
+                } else if (input == GameInput.LAUNCH) {
+                    // Reset the velocity of the circle
+                    // Circle will leave the paddle
+                    circle.setVx(GameCourt.CIRCLE_VX);
+                    circle.setVy(GameCourt.CIRCLE_VY);
+                    setState(GameState.PLAYING);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * restart is a method that will be called when the current game state is starting, or when a
+     * new game is needed.
+     * Specifically, it will clear the brick field, it will also, depending on the boolean
+     * parameter, generate and store bricks by default.
+     * It then will set the initial position, velocity, and width of the paddle and circle
+     * It will also set the score and life to be default.
+     * @param defaultBricks
+     */
+    public void restart(boolean defaultBricks) {
+        bricks.clear(); // The field is reused so that no brick needs to be created
+        stream = null;
+        if (defaultBricks && endless) {
+            // The rows come out on top, so the first row ends up at the bottom
+            stream = new BrickStream(bricks.getCols(), random.nextLong(), 0,
+                                     GameCourt.ENDLESS_OFF_HEAP);
+            scrollTick = 0;
+            for (int i = GameCourt.BRICK_LOWER_LIMIT / GameCourt.BRICK_HEIGHT - 1; i >= 0; i--) {
+                stream.nextRow(bricks, i);
+            }
+        } else if (defaultBricks) {
+            for (int i = 0; i < GameCourt.BRICK_LOWER_LIMIT / GameCourt.BRICK_HEIGHT; i++) {
+                for (int j = 0; j < GameCourt.COURT_WIDTH / GameCourt.BRICK_WIDTH; j++) {
+                    // Roll a super power. The color of the brick depends on whether it has one.
+                    bricks.set(j, i, rollSP());
+                }
+            }
+        }
+
+        fireBricksChanged();
+
+        // set paddle to default position, width, height, and velocity
+        paddle.setPx(GameCourt.PADDLE_X);
+        paddle.setPy(GameCourt.PADDLE_Y);
+        paddle.setWidth(GameCourt.PADDLE_WIDTH);
+        paddle.setVx(0);
+
+        // Reset the properties in the court
+        setLife(3);
+        setScore(0);
+        reset(); // reset circle and change the game state to halting
+    }
+
+    /**
+     * set the seed of the random source, so that the next default bricks can be created again from
+     * the same seed
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Save the whole state of the game into bytes: the state, the life, the score, the bricks, the
+     * paddle, and all the circles, followed by the seed and the place of the stream and the ticks 
+     * since the last move if the game is endless.
+     * @return
+     */
+    public byte[] saveState() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(gamestate.ordinal());
+            out.writeInt(life);
+            out.writeInt(score);
+            bricks.writeTo(out);
+            out.writeInt(paddle.getPx());
+            out.writeInt(paddle.getWidth());
+            out.writeInt(paddle.getVx());
+            out.writeInt(balls.size());
+            for (Circle c : balls) {
+                out.writeInt(c.getPx());
+                out.writeInt(c.getPy());
+                out.writeInt(c.getVx());
+                out.writeInt(c.getVy());
+                out.writeInt(c.getPrevPx());
+                out.writeInt(c.getPrevPy());
+            }
+            if (stream != null) { // Only written for an endless game
+                out.writeLong(stream.getSeed());
+                out.writeLong(stream.getRow());
+                out.writeInt(scrollTick);
+            }
+            out.close();
+        } catch (IOException e) {
+            // Not possible when writing into memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restore the state of the game from the bytes given by saveState. The listener is told about
+     * the new state, score and life.
+     * @param state
+     * @throws IOException if the bytes are not a valid state
+     */
+    public void loadState(byte[] state) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+        GameState gs = GameState.values()[in.readByte()];
+        int l = in.readInt();
+        int sc = in.readInt();
+        bricks = BrickField.readFrom(in);
+        fireBricksChanged();
+        paddle.setPx(in.readInt());
+        paddle.setPy(GameCourt.PADDLE_Y);
+        paddle.setWidth(in.readInt());
+        paddle.setVx(in.readInt());
+        int n = in.readInt();
+        balls.clear();
+        spawned.clear();
+        for (int i = 0; i < n; i++) {
+            Circle c = i == 0 ? circle 
+                              : new Circle(0, 0, GameCourt.CIRCLERADIUS, GameCourt.CIRCLERADIUS,
+                                           GameCourt.CIRCLE_COLOR, 0, 0,
+                                           GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+            c.setSwept(circle.isSwept());
+            c.setPx(in.readInt());
+            c.setPy(in.readInt());
+            c.setVx(in.readInt());
+            c.setVy(in.readInt());
+            c.setPrevPosition(in.readInt(), in.readInt());
+            balls.add(c);
+        }
+        if (in.available() > 0) { // An endless game
+            long streamSeed = in.readLong();
+            long row = in.readLong();
+            scrollTick = in.readInt();
+            stream = new BrickStream(bricks.getCols(), streamSeed, row, GameCourt.ENDLESS_OFF_HEAP);
+        } else {
+            stream = null;
+        }
+        setLife(l);
+        setScore(sc);
+        setState(gs);
+    }
+
+    /**
+     * Given a field of bricks, start a new game with them.
+     * @param bf
+     */
+    public void load(BrickField bf) {
+        if (bf != null) {
+            restart(false);
+            bricks = bf;
+            fireBricksChanged();
+        }
+    }
+
+    /**
+     * Add a circle at the given position with the given velocity. It is used by the multi ball 
+     * super power, and can also be used to put a lot of circles in the court for testing.
+     * The circle only joins the court after the current tick.
+     * @param px
+     * @param py
+     * @param vx
+     * @param vy
+     */
+    public void addBall(int px, int py, int vx, int vy) {
+        Circle c = new Circle(px, py, GameCourt.CIRCLERADIUS, GameCourt.CIRCLERADIUS,
+                              GameCourt.CIRCLE_COLOR, vx, vy,
+                              GameCourt.COURT_WIDTH, GameCourt.COURT_HEIGHT);
+        c.setSwept(circle.isSwept());
+        spawned.add(c);
+    }
+
+    /**
+     * A helper method that lets more circles come out of where the given circle is. Each of them
+     * goes up in a different direction so that they spread out.
+     * @param from
+     * @param n
+     */
+    private void spawnBalls(Circle from, int n) {
+        for (int i = 0; i < n; i++) {
+            int sign = (i % 2 == 0) ? 1 : -1;
+            addBall(from.getPx(), from.getPy(), sign * (1 + i % GameCourt.CIRCLE_VX),
+                    GameCourt.CIRCLE_VY);
+        }
+    }
+
+    /**
+     * This method will only be called if the game state is playing.
+     * Specifically, the paddle and the circles will move, it will also account of bounce and 
+     * hitting objects
+     */
+    private void play() {
+        // Move the paddle first so that all the circles see where it is now
+        paddle.move();
+
+        int k = 0;
+        while (k < balls.size()) {
+            Circle c = balls.get(k);
+            c.move();
+            // Accounts for the situation when the circle is below the y-bound. If there are other 
+            // circles, this one is simply gone. Otherwise, the user loses a life and possibly lose
+            // the game if he has no life.
+            if (c.getPy() >= GameCourt.COURT_HEIGHT) {
+                if (balls.size() > 1) {
+                    // Move the last circle into its place, which has not moved in this tick yet
+                    int last = balls.size() - 1;
+                    balls.set(k, balls.get(last));
+                    balls.remove(last);
+                    circle = balls.get(0);
+                    continue;
+                }
+                spawned.clear();
+                setLife(life - 1);
+                if (life > 0) {
+                    setState(GameState.RESETING);
+                } else {
+                    setState(GameState.ENDING);
+                }
+                return;
+            }
+            collide(c);
+            k++;
+        }
+        balls.addAll(spawned);
+        spawned.clear();
+        if (stream != null) { // The endless game goes on until there is no life left
+            if (++scrollTick >= GameCourt.ENDLESS_SCROLL_TICKS) {
+                scrollTick = 0;
+                scroll();
+            }
+        } else if (bricks.isEmpty()) { // Determine if the user wins or not.
+            setState(GameState.ENDING);
+        }
+    }
+
+    /**
+     * A helper method that moves the field of the endless game down by one row, removes the
+     * bricks that reach the limit, and puts the next row of the stream on top.
+     */
+    private void scroll() {
+        bricks.scrollDown(GameCourt.ENDLESS_LIMIT / GameCourt.BRICK_HEIGHT);
+        stream.nextRow(bricks, 0);
+        if (listener != null) {
+            listener.bricksScrolled();
+        }
+    }
+
+    /**
+     * A helper method that checks whether the circle hits the paddle or a brick, and makes it 
+     * bounce. If it hits a brick, the brick is broken and its super power is given.
+     * @param c
+     */
+    private void collide(Circle c) {
+        Direction d = c.hitObj(paddle);
+        if (d == null) { // if the circle did not hit the paddle
+            // Only the bricks around the circle are checked
+            long tested = bricks.getTested();
+            int i = bricks.findHit(c);
+            bricksTested += bricks.getTested() - tested;
+            if (i != -1) { // if the circle hit the brick
+                d = c.hitRect(bricks.getPx(i), bricks.getPy(i),
+                              GameCourt.BRICK_WIDTH, GameCourt.BRICK_HEIGHT);
+                SuperPower sp = bricks.getSP(i);
+                // Assign super power
+                if (sp == SuperPower.LONGERPADDLE) {
+                    paddle.setWidth(GameCourt.PADDLE_LONGERWIDTH);
+
+                } else if (sp == SuperPower.SHORTERPADDLE) {
+                    paddle.setWidth(GameCourt.PADDLE_SHORTERWIDTH);
+                } else if (sp == SuperPower.MULTIBALL) {
+                    spawnBalls(c, GameCourt.MULTIBALL_COUNT);
+                }
+                bricks.remove(i);
+                bricksHit++;
+                if (listener != null) {
+                    listener.brickBroken(i);
+                }
+                setScore(score + GameCourt.SCOREINCREMENT);
+            }
+        }
+        c.bounce(d);
+    }
+
+    /**
+     * This method is only called during the reseting game state or at starting state as the
+     * position of the circle will be reset. Only the first circle is kept.
+     */
+    private void reset() {
+        balls.clear();
+        balls.add(circle);
+        spawned.clear();
+        circle.setPx(paddle.getPx() + GameCourt.PADDLE_WIDTH / 2 - GameCourt.CIRCLERADIUS / 2);
+        circle.setPy(paddle.getPy() - GameCourt.CIRCLERADIUS);
+        circle.setVx(0);// Initially, ball should be on the board
+        circle.setVy(0);
+        setState(GameState.HALTING); // State will change to halting to wait for user's move
+    }
+}
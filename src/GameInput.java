@@ -0,0 +1,13 @@
+/**
+ * GameInput represents what the user is doing with the keys during a tick:
+ * 1. NONE, when no arrow key is held, which means the paddle should not move.
+ * 2. LEFT, when the left key is held, which means the paddle should move left.
+ * 3. RIGHT, when the right key is held, which means the paddle should move right.
+ * 4. LAUNCH, when space is pressed, which means the circle should leave the paddle. The paddle 
+ * keeps moving the way it was.
+ * @author garychen
+ *
+ */
+public enum GameInput {
+    NONE, LEFT, RIGHT, LAUNCH;
+}
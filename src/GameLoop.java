@@ -0,0 +1,150 @@
+/**
+ * GameLoop is the loop that keeps the game going on a thread of its own, so that the game will not
+ * be stopped by the painting or any dialog on the Swing thread.
+ * The loop uses a fixed time step: the time that passes is added to an accumulator, and for every
+ * full step of time in the accumulator, the game ticks once. This way the game always moves at the
+ * same speed, no matter how fast or how slow the loop is going.
+ * Separately, the loop asks for a render at the render rate. The time left in the accumulator is
+ * passed along as a fraction of a step, so that the renderer can draw the objects in between where
+ * they were in the last two ticks and make the movement smooth.
+ * @author garychen
+ *
+ */
+public class GameLoop implements Runnable {
+
+    private static final long NANOS_PER_SECOND = 1000000000L; // Nanoseconds in a second
+    private static final int MAX_STEPS = 5; // The most number of ticks to catch up in one go, so
+                                            // that the loop won't spiral after a long hitch
+
+    /**
+     * Listener is what the loop drives. tick moves the game forward by one step, and render draws
+     * the game with the fraction of a step that has passed since the last tick. Each tick is given
+     * the time on System.nanoTime that the end of its step stands for, which is a little earlier
+     * than now when the loop is catching up.
+     * @author garychen
+     *
+     */
+    public interface Listener {
+        void tick(long nanos);
+
+        void render(double alpha);
+    }
+
+    private final Listener listener; // The listener that will be ticked and rendered
+    private volatile long tickNanos; // The time of a step in nanoseconds
+    private volatile long renderNanos; // The time between two renders in nanoseconds
+    private volatile Thread thread; // The thread that is running the loop, null if stopped
+
+    /**
+     * The constructor takes in the listener and the number of ticks and renders per second.
+     * @param listener
+     * @param tickRate
+     * @param renderRate
+     */
+    public GameLoop(Listener listener, int tickRate, int renderRate) {
+        this.listener = listener;
+        setTickRate(tickRate);
+        setRenderRate(renderRate);
+    }
+
+    /**
+     * set the number of ticks per second
+     * @param tickRate
+     */
+    public void setTickRate(int tickRate) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive");
+        }
+        this.tickNanos = NANOS_PER_SECOND / tickRate;
+    }
+
+    /**
+     * set the number of renders per second
+     * @param renderRate
+     */
+    public void setRenderRate(int renderRate) {
+        if (renderRate <= 0) {
+            throw new IllegalArgumentException("Render rate must be positive");
+        }
+        this.renderNanos = NANOS_PER_SECOND / renderRate;
+    }
+
+    /**
+     * return the time of a step in nanoseconds
+     * @return
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * return whether the loop is running
+     * @return
+     */
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Start the loop on a new thread if it is not running already.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this, "GameLoop");
+            thread.setDaemon(true); // The loop should not keep the program alive
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop the loop. The loop will stop before its next tick, so it is safe to call this method
+     * from a tick as well.
+     */
+    public synchronized void stop() {
+        Thread t = thread;
+        thread = null;
+        if (t != null && t != Thread.currentThread()) {
+            t.interrupt(); // Wake the loop up if it is sleeping
+        }
+    }
+
+    /**
+     * The loop itself. It will keep running until it is stopped or another loop thread takes over.
+     */
+    @Override
+    public void run() {
+        Thread self = Thread.currentThread();
+        long previous = System.nanoTime();
+        long lastRender = previous;
+        long accumulator = 0;
+        while (thread == self) {
+            long now = System.nanoTime();
+            long step = tickNanos;
+            accumulator += now - previous;
+            previous = now;
+            if (accumulator > step * MAX_STEPS) { // Drop the time that is too long to catch up
+                accumulator = step * MAX_STEPS;
+            }
+            while (accumulator >= step && thread == self) {
+                listener.tick(now - accumulator + step);
+                accumulator -= step;
+            }
+            if (now - lastRender >= renderNanos && thread == self) {
+                listener.render((double) accumulator / step);
+                lastRender = now;
+            }
+
+            // Sleep until either the next tick or the next render is due
+            long untilTick = step - accumulator;
+            long untilRender = renderNanos - (System.nanoTime() - lastRender);
+            long wait = Math.min(untilTick, untilRender);
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                } catch (InterruptedException e) {
+                    // Interrupted by stop, the condition of the loop will end it.
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * GameStats keeps the timing of a game while it is running:
+ * 1. a LatencyHistogram for each part of a tick of the court: handling the input, which includes
+ * recording the replay, and stepping the engine, as well as the whole tick
+ * 2. a LatencyHistogram for the time it takes to paint a frame, and for the time between two frames
+ * 3. the number of ticks that take longer than a tick is supposed to be, i.e. 40 milliseconds
+ * 4. the number of bricks tested for a hit and the number of bricks hit
+ * The frames of the last second are also kept apart, so that the frame time and the frames per
+ * second right now can be shown in the court.
+ * It can be registered as an MBean so that all of it can be read over JMX.
+ * @author garychen
+ *
+ */
+public class GameStats implements GameStatsMBean {
+
+    public static final String OBJECT_NAME = "BrickBreaker:type=GameStats"; // The name of the MBean
+    private static final long WINDOW_NANOS = 1000000000L; // The length of the window of the frames
+                                                          // shown in the court
+
+    private final LatencyHistogram tick; // The time of a whole tick
+    private final LatencyHistogram input; // The time of handling the input in a tick
+    private final LatencyHistogram step; // The time of stepping the engine in a tick
+    private final LatencyHistogram paint; // The time of painting a frame
+    private final LatencyHistogram frame; // The time between two frames
+    private final LatencyHistogram window; // The time between two frames in the current window
+    private final AtomicLong bricksTested; // The number of bricks tested for a hit
+    private final AtomicLong bricksHit; // The number of bricks hit
+    private volatile long budgetNanos; // The time a tick is supposed to take
+    private long lastFrame; // The time of the last frame, 0 if there isn't one
+    private long windowStart; // The time the current window of frames starts
+    private volatile double windowP50; // The median time between frames in the last window
+    private volatile double windowP99; // The 99th percentile time between frames in the last window
+    private volatile double windowFps; // The number of frames per second in the last window
+    private volatile boolean windowReset; // Whether the window is started again at the next frame,
+                                          // since reset is called on another thread
+
+    /**
+     * The constructor takes in the number of ticks per second, which decides how long a tick is
+     * supposed to take.
+     * @param tickRate
+     */
+    public GameStats(int tickRate) {
+        this.tick = new LatencyHistogram();
+        this.input = new LatencyHistogram();
+        this.step = new LatencyHistogram();
+        this.paint = new LatencyHistogram();
+        this.frame = new LatencyHistogram();
+        this.window = new LatencyHistogram();
+        this.bricksTested = new AtomicLong();
+        this.bricksHit = new AtomicLong();
+        setTickRate(tickRate);
+    }
+
+    /**
+     * set the number of ticks per second, which decides how long a tick is supposed to take
+     * @param tickRate
+     */
+    public void setTickRate(int tickRate) {
+        this.budgetNanos = 1000000000L / tickRate;
+    }
+
+    /**
+     * Register the stats as an MBean with the platform MBean server
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Failed to register the stats over JMX");
+        }
+    }
+
+    /**
+     * Record a tick, given the time it takes to handle the input and to step the engine in
+     * nanoseconds, and the number of bricks tested and hit in the tick.
+     * @param inputNanos
+     * @param stepNanos
+     * @param tested
+     * @param hit
+     */
+    public void recordTick(long inputNanos, long stepNanos, long tested, long hit) {
+        input.record(inputNanos);
+        step.record(stepNanos);
+        tick.record(inputNanos + stepNanos);
+        bricksTested.addAndGet(tested);
+        bricksHit.addAndGet(hit);
+    }
+
+    /**
+     * Record a frame, given the time it starts and the time it takes to paint it in nanoseconds.
+     * Frames are only painted on one thread at a time.
+     * @param start
+     * @param paintNanos
+     */
+    public void recordFrame(long start, long paintNanos) {
+        if (windowReset) {
+            windowReset = false;
+            restartWindow();
+        }
+        paint.record(paintNanos);
+        if (lastFrame != 0) {
+            frame.record(start - lastFrame);
+            window.record(start - lastFrame);
+        } else {
+            windowStart = start;
+        }
+        lastFrame = start;
+        if (start - windowStart >= WINDOW_NANOS) {
+            windowP50 = window.getPercentile(0.5) / 1e3;
+            windowP99 = window.getPercentile(0.99) / 1e3;
+            windowFps = window.getCount() * 1e9 / (start - windowStart);
+            window.reset();
+            windowStart = start;
+        }
+    }
+
+    /**
+     * Forget the time of the last frame and the frames of the current window, so that a pause is
+     * not counted as a long frame, and the window after it starts at the first frame again. It is
+     * called on the thread that paints the frames.
+     */
+    public void pause() {
+        restartWindow();
+    }
+
+    /**
+     * A helper method that forgets the last frame and the frames of the current window, so that
+     * the next frame starts a new window
+     */
+    private void restartWindow() {
+        window.reset();
+        lastFrame = 0;
+        windowStart = 0;
+    }
+
+    /**
+     * Forget everything recorded so far. The frames of the current window are forgotten at the
+     * next frame, on the thread that paints it, and the numbers of the last window are cleared.
+     */
+    @Override
+    public void reset() {
+        tick.reset();
+        input.reset();
+        step.reset();
+        paint.reset();
+        frame.reset();
+        bricksTested.set(0);
+        bricksHit.set(0);
+        windowReset = true;
+        windowP50 = 0;
+        windowP99 = 0;
+        windowFps = 0;
+    }
+
+    /**
+     * Return the text shown in the court: the median and 99th percentile time between frames in
+     * milliseconds and the number of frames per second, all of the last second.
+     * @return
+     */
+    public String overlayText() {
+        return String.format("frame p50 %.1f ms  p99 %.1f ms  %.0f fps",
+                windowP50 / 1e3, windowP99 / 1e3, windowFps);
+    }
+
+    /*** GETTERS **********************************************************************************/
+    @Override
+    public long getTicks() {
+        return tick.getCount();
+    }
+
+    @Override
+    public long getBudgetMisses() {
+        return tick.countAbove(budgetNanos);
+    }
+
+    @Override
+    public double getTickP50Micros() {
+        return tick.getPercentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getTickP99Micros() {
+        return tick.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getTickMaxMicros() {
+        return tick.getMax() / 1e3;
+    }
+
+    @Override
+    public double getStepP50Micros() {
+        return step.getPercentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getStepP99Micros() {
+        return step.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getInputP50Micros() {
+        return input.getPercentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getInputP99Micros() {
+        return input.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getPaintP50Micros() {
+        return paint.getPercentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getPaintP99Micros() {
+        return paint.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getFrameP50Micros() {
+        return frame.getPercentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getFrameP99Micros() {
+        return frame.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getFps() {
+        return windowFps;
+    }
+
+    @Override
+    public long getBricksTested() {
+        return bricksTested.get();
+    }
+
+    @Override
+    public long getBricksHit() {
+        return bricksHit.get();
+    }
+
+    @Override
+    public double getBricksTestedPerTick() {
+        long n = tick.getCount();
+        return n == 0 ? 0 : (double) bricksTested.get() / n;
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * GameStatsMBean is what the GameStats shows over JMX, so that the timing of a running game can be
+ * looked at with a tool like JConsole. All the times are in microseconds.
+ * @author garychen
+ *
+ */
+public interface GameStatsMBean {
+    long getTicks();
+
+    long getBudgetMisses();
+
+    double getTickP50Micros();
+
+    double getTickP99Micros();
+
+    double getTickMaxMicros();
+
+    double getInputP50Micros();
+
+    double getInputP99Micros();
+
+    double getStepP50Micros();
+
+    double getStepP99Micros();
+
+    double getPaintP50Micros();
+
+    double getPaintP99Micros();
+
+    double getFrameP50Micros();
+
+    double getFrameP99Micros();
+
+    double getFps();
+
+    long getBricksTested();
+
+    long getBricksHit();
+
+    double getBricksTestedPerTick();
+
+    void reset();
+}
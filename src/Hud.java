@@ -0,0 +1,145 @@
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Hud is what the labels of the score, the life and the status should show. The game changes the
+ * Hud as many times as it wants during a tick, which only changes a few numbers, and the labels
+ * are updated at most once a frame when the Hud is flushed.
+ * A flush posts a single update to the Swing thread, and only if something has changed since the
+ * last update. The update only sets the text of a label that is different from what it shows, so
+ * Swing does not lay out the status panel again when nothing has changed. The text of the numbers
+ * is cached, so showing a number usually does not create a new string.
+ * @author garychen
+ *
+ */
+public class Hud {
+
+    private static final int CACHED_NUMBERS = 1 << 14; // The numbers from 0 that have their text
+                                                      // cached
+    private static final String[] NUMBERS = new String[CACHED_NUMBERS]; // The text of the numbers,
+                                                                        // filled when first used
+
+    private final JLabel scoreLabel; // The JLabel that display the current score
+    private final JLabel lifeLabel; // The JLabel that display the current life
+    private final JLabel statusLabel; // The JLabel that display the current status
+    private int score = Integer.MIN_VALUE; // The score to show
+    private int life = Integer.MIN_VALUE; // The life to show
+    private String status; // The status to show
+    private boolean dirty; // Whether anything has changed since the last update
+    private boolean posted; // Whether an update is waiting on the Swing thread
+    private int shownScore = Integer.MIN_VALUE; // The score shown, only used on the Swing thread
+    private int shownLife = Integer.MIN_VALUE; // The life shown, only used on the Swing thread
+    private String shownStatus; // The status shown, only used on the Swing thread
+    private final Runnable update; // The update of the labels that is posted to the Swing thread
+
+    /**
+     * The constructor takes in the labels of the score, the life and the status.
+     * @param scoreLabel
+     * @param lifeLabel
+     * @param statusLabel
+     */
+    public Hud(JLabel scoreLabel, JLabel lifeLabel, JLabel statusLabel) {
+        this.scoreLabel = scoreLabel;
+        this.lifeLabel = lifeLabel;
+        this.statusLabel = statusLabel;
+        this.update = new Runnable() {
+            public void run() {
+                update();
+            }
+        };
+    }
+
+    /**
+     * A helper method that returns the text of a number, which is cached if it is small enough
+     * @param n
+     * @return
+     */
+    private static String text(int n) {
+        if (n < 0 || n >= CACHED_NUMBERS) {
+            return Integer.toString(n);
+        }
+        String s = NUMBERS[n];
+        if (s == null) {
+            s = Integer.toString(n);
+            NUMBERS[n] = s; // A race only makes the same string twice
+        }
+        return s;
+    }
+
+    /*** SETTERS **********************************************************************************/
+    /**
+     * set the score to show
+     * @param score
+     */
+    public synchronized void setScore(int score) {
+        if (this.score != score) {
+            this.score = score;
+            dirty = true;
+        }
+    }
+
+    /**
+     * set the life to show
+     * @param life
+     */
+    public synchronized void setLife(int life) {
+        if (this.life != life) {
+            this.life = life;
+            dirty = true;
+        }
+    }
+
+    /**
+     * set the status to show
+     * @param status
+     */
+    public synchronized void setStatus(String status) {
+        if (!status.equals(this.status)) {
+            this.status = status;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Post an update of the labels to the Swing thread if anything has changed and there isn't an
+     * update waiting already. It can be called from any thread.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (!dirty || posted) {
+                return;
+            }
+            posted = true;
+        }
+        SwingUtilities.invokeLater(update);
+    }
+
+    /**
+     * A helper method that sets the text of the labels that are different from what they show. It
+     * is run on the Swing thread.
+     */
+    private void update() {
+        int s;
+        int l;
+        String st;
+        synchronized (this) {
+            s = score;
+            l = life;
+            st = status;
+            dirty = false;
+            posted = false;
+        }
+        if (s != shownScore && s != Integer.MIN_VALUE) {
+            scoreLabel.setText(text(s));
+            shownScore = s;
+        }
+        if (l != shownLife && l != Integer.MIN_VALUE) {
+            lifeLabel.setText(text(l));
+            shownLife = l;
+        }
+        if (st != null && !st.equals(shownStatus)) {
+            statusLabel.setText(st);
+            shownStatus = st;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KeyQueue passes the keys the user presses and releases from the Swing thread to the thread that
+ * ticks the game, each with the time it happened on System.nanoTime, so that the tick can tell
+ * when during the tick each key was pressed.
+ * It is a ring buffer for one thread that puts keys in and one thread that takes them out. Neither
+ * of them ever takes a lock or waits for the other: each thread only writes its own end of the
+ * queue, and a key is only seen by the taker after the place of the end is published, which also
+ * publishes the key itself. Nothing is allocated once the queue is created.
+ * The queue holds a fixed number of keys. If the ticks stop taking keys, e.g. while the game is
+ * paused, the keys pressed after the queue is full are dropped, but a key released is never
+ * dropped, since that would leave the paddle moving. The first key released once the queue is
+ * full is kept in a single late place next to the ring, and until the taker has taken it, the
+ * putter puts nothing in the ring: every press is dropped and every other release is merged into
+ * it, as any release stops the paddle all the same. So the late key is always the last key in the
+ * queue.
+ * @author garychen
+ *
+ */
+public class KeyQueue {
+
+    private final long[] times; // The time of each key in the ring
+    private final int[] keys; // The key code of each key in the ring, and whether it is pressed
+                              // in the lowest bit
+    private final int mask; // The number of keys the ring holds minus one
+    private final AtomicLong head; // The number of keys taken, only written by the taker
+    private final AtomicLong tail; // The number of keys put in, only written by the putter
+    private long knownHead; // The number of keys taken the last time the putter looked
+    private long knownTail; // The number of keys put in the last time the taker looked
+    private static final long NO_LATE = Long.MIN_VALUE; // The time of the late key when there
+                                                        // isn't one
+    private final AtomicLong lateTime; // The time of the key released once the ring is full, set
+                                       // by the putter and cleared by the taker
+    private int lateKeyCode; // The key code of the late key, which is published with its time
+    private boolean lateFirst; // Whether the first key is the late key, only used by the taker
+
+    /**
+     * The constructor takes in the number of keys the queue holds, which is rounded up to a power
+     * of two
+     * @param capacity
+     */
+    public KeyQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.times = new long[size];
+        this.keys = new int[size];
+        this.mask = size - 1;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+        this.lateTime = new AtomicLong(NO_LATE);
+    }
+
+    /**
+     * Put a key at the end of the queue, which should only be called by one thread. It returns
+     * false if the key is dropped, which only happens to a key pressed when the queue is full. A
+     * key released when the queue is full is kept as the late key, or merged into it.
+     * @param nanos the time the key happens on System.nanoTime
+     * @param keyCode
+     * @param pressed whether the key is pressed, or released otherwise
+     * @return
+     */
+    public boolean offer(long nanos, int keyCode, boolean pressed) {
+        if (lateTime.get() != NO_LATE) {
+            return !pressed; // Nothing goes after the late key until it is taken
+        }
+        long t = tail.get();
+        if (t - knownHead > mask) {
+            knownHead = head.get(); // Only read again when the queue seems full
+            if (t - knownHead > mask) {
+                if (pressed) {
+                    return false;
+                }
+                lateKeyCode = keyCode;
+                lateTime.lazySet(nanos); // Publishes the late key to the taker
+                return true;
+            }
+        }
+        int i = (int) t & mask;
+        times[i] = nanos;
+        keys[i] = keyCode << 1 | (pressed ? 1 : 0);
+        tail.lazySet(t + 1); // Publishes the key to the taker
+        return true;
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return whether there is no key to take. Like all the methods below, it should only be
+     * called by the thread that takes the keys, and it must return false before the first key is
+     * looked at or removed.
+     * @return
+     */
+    public boolean isEmpty() {
+        long h = head.get();
+        lateFirst = false;
+        if (h == knownTail) {
+            // The late key is looked at before the end of the ring, so every key put in the ring
+            // before it is seen first
+            boolean late = lateTime.get() != NO_LATE;
+            knownTail = tail.get(); // Only read again when the queue seems empty
+            lateFirst = late && h == knownTail;
+        }
+        return h == knownTail && !lateFirst;
+    }
+
+    /**
+     * return the time of the first key on System.nanoTime. The queue must not be empty.
+     * @return
+     */
+    public long peekTime() {
+        return lateFirst ? lateTime.get() : times[(int) head.get() & mask];
+    }
+
+    /**
+     * return the key code of the first key. The queue must not be empty.
+     * @return
+     */
+    public int peekKeyCode() {
+        return lateFirst ? lateKeyCode : keys[(int) head.get() & mask] >> 1;
+    }
+
+    /**
+     * return whether the first key is pressed, or released otherwise. The queue must not be empty.
+     * @return
+     */
+    public boolean peekPressed() {
+        return !lateFirst && (keys[(int) head.get() & mask] & 1) != 0;
+    }
+
+    /**
+     * Remove the first key, so that its place can be used again. The queue must not be empty.
+     */
+    public void remove() {
+        if (lateFirst) {
+            lateFirst = false;
+            lateTime.lazySet(NO_LATE); // Lets the putter use the ring again
+        } else {
+            head.lazySet(head.get() + 1); // Gives the place back to the putter
+        }
+    }
+}
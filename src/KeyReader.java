@@ -0,0 +1,76 @@
+import java.awt.event.KeyEvent;
+
+/**
+ * KeyReader takes the keys out of a KeyQueue at the start of each tick and decides what the user
+ * is doing during the tick:
+ * 1. LAUNCH, if space is pressed at any time before the end of the tick
+ * 2. otherwise, the arrow key held at the end of the tick, or if no arrow key is held then, the
+ * last arrow key pressed during the tick, so that a key tapped within a single tick still moves
+ * the paddle
+ * 3. NONE if no arrow key is held or pressed.
+ * So a key pressed at any time during a tick takes effect on that tick, however late in the tick
+ * it comes, just like LAUNCH, and a key is never applied later than the tick it comes in. The keys
+ * that come after the end of the tick are left in the queue for the next tick.
+ * The keys that are not arrows or space are passed to the Listener as they are taken.
+ * @author garychen
+ *
+ */
+public class KeyReader {
+
+    /**
+     * Listener is told about the keys pressed that the KeyReader does not use itself
+     * @author garychen
+     *
+     */
+    public interface Listener {
+        void keyPressed(int keyCode);
+    }
+
+    private final KeyQueue queue; // The keys waiting for a tick
+    private final Listener listener; // Told about the other keys, null if there isn't one
+    private GameInput held = GameInput.NONE; // The arrow key the user is holding
+
+    /**
+     * The constructor takes in the queue of the keys and the listener of the other keys
+     * @param queue
+     * @param listener
+     */
+    public KeyReader(KeyQueue queue, Listener listener) {
+        this.queue = queue;
+        this.listener = listener;
+    }
+
+    /**
+     * Take the keys that come before the given time on System.nanoTime, and return what the user
+     * is doing during the tick that ends then. It should only be called by the thread that takes
+     * the keys out of the queue.
+     * @param end
+     * @return
+     */
+    public GameInput read(long end) {
+        GameInput pressed = GameInput.NONE; // The last arrow key pressed during the tick
+        boolean launch = false;
+        while (!queue.isEmpty() && queue.peekTime() < end) {
+            int keyCode = queue.peekKeyCode();
+            boolean isPress = queue.peekPressed();
+            queue.remove();
+            if (!isPress) { // Any key released stops the paddle
+                held = GameInput.NONE;
+            } else if (keyCode == KeyEvent.VK_LEFT) {
+                held = GameInput.LEFT;
+                pressed = held;
+            } else if (keyCode == KeyEvent.VK_RIGHT) {
+                held = GameInput.RIGHT;
+                pressed = held;
+            } else if (keyCode == KeyEvent.VK_SPACE) {
+                launch = true; // The circle will be launched on this tick
+            } else if (listener != null) {
+                listener.keyPressed(keyCode);
+            }
+        }
+        if (launch) {
+            return GameInput.LAUNCH;
+        }
+        return held != GameInput.NONE ? held : pressed;
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts how many times each length of time in nanoseconds is recorded, so that
+ * the percentiles of the times can be found without keeping every time.
+ * The times are put into buckets by the position of their highest bit and the next few bits after
+ * it, which keeps each bucket within 1/16 of the times in it, from a nanosecond up to the longest
+ * time there is. Recording a time is only a few bit operations and an atomic increment, with no
+ * allocation and no lock, so it can be done on every tick and every frame. It can be recorded and
+ * read from different threads at the same time.
+ * @author garychen
+ *
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4; // The number of bits after the highest bit in a bucket
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // The number of buckets for each highest
+                                                           // bit
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS; // The number of buckets
+
+    private final AtomicLongArray counts; // The number of times recorded in each bucket
+    private final AtomicLong total; // The number of times recorded
+    private final AtomicLong sum; // The sum of all the times recorded
+    private final AtomicLong max; // The longest time recorded
+
+    /**
+     * The constructor creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.total = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * A helper method that returns the bucket of the given time
+     * @param nanos
+     * @return
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (msb - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * A helper method that returns the longest time that goes into the given bucket
+     * @param bucket
+     * @return
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Record a time in nanoseconds
+     * @param nanos
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+        total.incrementAndGet();
+        sum.addAndGet(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Forget all the times recorded
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the number of times recorded
+     * @return
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * return the longest time recorded in nanoseconds
+     * @return
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * return the average of the times recorded in nanoseconds, 0 if there is none
+     * @return
+     */
+    public double getMean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * return the time in nanoseconds that the given fraction of the times recorded are no longer
+     * than, 0 if there is none. It is rounded up to the end of its bucket, but no more than the
+     * longest time.
+     * @param q
+     * @return
+     */
+    public long getPercentile(double q) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(q * n), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Count the times that are longer than the given time in nanoseconds. It is exact to the
+     * bucket of the given time.
+     * @param nanos
+     * @return
+     */
+    public long countAbove(long nanos) {
+        long n = 0;
+        for (int i = bucket(nanos) + 1; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Leaderboard keeps all the records of the game: every score that is reached and the names of the
+ * users who reach it.
+ * The scores are kept from the highest to the lowest in a skip list map, and the names of each 
+ * score are kept in alphabetical order in a skip list set, so adding a record takes O(log n) and 
+ * nothing ever has to be sorted again. A user who reaches the same score twice is only listed once.
+ * Records can be added from many threads at once. The skip lists, the map of the best scores and 
+ * the RankIndex are all updated without a lock, so games adding records at the same time do not
+ * wait for each other. Reading while records are added sees some of the new records and not 
+ * others, but never breaks.
+ * The top scores, which are shown next to the court, are kept in a list that is only made again
+ * when a record reaches them. Only a record as high as the lowest top score takes the lock of the
+ * list.
+ * It also answers questions about the records without going through all of them:
+ * 1. the best score of a user, which is kept in a map from the name of each user
+ * 2. the rank and the percentile of a score, which come from a RankIndex of the scores in O(log n)
+ * 3. a page of the records from any rank, which starts at the right score with the RankIndex
+ * @author garychen
+ *
+ */
+public class Leaderboard {
+
+    public static final int TOP = 5; // The number of top scores shown
+
+    private final ConcurrentNavigableMap<Integer, SortedSet<String>> records; // The names of each
+                                                                              // score, from the
+                                                                              // highest score
+    private final AtomicInteger size; // The number of records
+    private final AtomicInteger scoreCount; // The number of different scores
+    private final ConcurrentHashMap<String, Integer> best; // The best score of each user
+    private final RankIndex ranks; // The number of records of each score
+    private final Object topLock = new Object(); // The lock held while changing the top scores
+    private List<Integer> top; // The top scores from the highest, null if it needs to be
+                               // made again
+    private volatile int topLowest = Integer.MIN_VALUE; // The lowest score that can change the
+                                                        // top scores
+
+    /**
+     * The constructor creates an empty leaderboard.
+     */
+    public Leaderboard() {
+        this.records = 
+                new ConcurrentSkipListMap<Integer, SortedSet<String>>(Collections.reverseOrder());
+        this.size = new AtomicInteger();
+        this.scoreCount = new AtomicInteger();
+        this.best = new ConcurrentHashMap<String, Integer>();
+        this.ranks = new RankIndex();
+    }
+
+    /**
+     * Add a record of the given user reaching the given score. It returns whether the top scores
+     * are changed by the record. It can be called from any thread.
+     * @param score
+     * @param name
+     * @return
+     * @throws IllegalArgumentException if the score is negative or from LeaderboardFile.MAX_SCORE
+     * on, which cannot be written into the records file
+     */
+    public boolean add(int score, String name) {
+        if (score < 0 || score >= LeaderboardFile.MAX_SCORE) {
+            throw new IllegalArgumentException("Score out of range: " + score);
+        }
+        SortedSet<String> names = records.get(score);
+        if (names == null) {
+            SortedSet<String> newNames = new ConcurrentSkipListSet<String>();
+            names = records.putIfAbsent(score, newNames);
+            if (names == null) {
+                names = newNames;
+                scoreCount.incrementAndGet();
+            }
+        }
+        if (!names.add(name)) {
+            return false; // Already there
+        }
+        size.incrementAndGet();
+        ranks.add(score);
+        Integer b = best.putIfAbsent(name, score);
+        while (b != null && b < score && !best.replace(name, b, score)) {
+            b = best.get(name);
+        }
+        // Only a score as high as the lowest top score can change the top scores. The lowest top
+        // score only goes up, so a score below an old one is also below the current one.
+        if (score < topLowest) {
+            return false;
+        }
+        synchronized (topLock) {
+            if (top != null && (top.size() < TOP || score >= top.get(top.size() - 1))) {
+                top = null;
+                topLowest = Integer.MIN_VALUE;
+            }
+            return top == null;
+        }
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the number of records
+     * @return
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * return the number of different scores
+     * @return
+     */
+    public int getScoreCount() {
+        return scoreCount.get();
+    }
+
+    /**
+     * return the names of the users who reach the given score in alphabetical order, which is
+     * empty if no one reaches it
+     * @param score
+     * @return
+     */
+    public SortedSet<String> getNames(int score) {
+        SortedSet<String> names = records.get(score);
+        if (names == null) {
+            return Collections.unmodifiableSortedSet(new TreeSet<String>());
+        }
+        return Collections.unmodifiableSortedSet(names);
+    }
+
+    /**
+     * return the top scores from the highest, at most TOP of them
+     * @return
+     */
+    public List<Integer> getTop() {
+        synchronized (topLock) {
+            if (top == null) {
+                List<Integer> l = new ArrayList<Integer>(TOP);
+                for (Integer score : records.keySet()) {
+                    if (l.size() == TOP) {
+                        break;
+                    }
+                    l.add(score);
+                }
+                top = Collections.unmodifiableList(l);
+                topLowest = l.size() < TOP ? Integer.MIN_VALUE : l.get(TOP - 1);
+            }
+            return top;
+        }
+    }
+
+    /**
+     * return the best score of the given user, or -1 if the user has no record
+     * @param name
+     * @return
+     */
+    public int getBest(String name) {
+        Integer b = best.get(name);
+        return b == null ? -1 : b;
+    }
+
+    /**
+     * return the rank of the given score, which is one more than the number of records with a
+     * higher score, so records with the same score share a rank
+     * @param score
+     * @return
+     */
+    public int getRank(int score) {
+        return (int) ranks.countAbove(score) + 1;
+    }
+
+    /**
+     * return the percentage of the records that the given rank is within, e.g. 10 for the rank 1
+     * of 10 records
+     * @param rank
+     * @return
+     */
+    public double getPercentile(int rank) {
+        int n = size.get();
+        return n == 0 ? 100 : Math.min(100.0 * rank / n, 100);
+    }
+
+    /**
+     * return at most the given number of records starting from the given place in the ranking, 
+     * which counts from 0. The records are from the highest score, and in alphabetical order for 
+     * the same score. While records are being added, the page may be off by the records that 
+     * are not fully added yet.
+     * @param from
+     * @param count
+     * @return
+     */
+    public List<ScoreRecord> getPage(int from, int count) {
+        List<ScoreRecord> page = new ArrayList<ScoreRecord>();
+        long n = ranks.size();
+        if (from < 0 || from >= n || count <= 0) {
+            return page;
+        }
+        // The score of the record at the place, which is the (n - from)th lowest record
+        int score = ranks.lowest(n - from);
+        int skip = from - (int) ranks.countAbove(score);
+        for (Map.Entry<Integer, SortedSet<String>> e : records.tailMap(score, true).entrySet()) {
+            Iterator<String> it = e.getValue().iterator();
+            for (; skip > 0 && it.hasNext(); skip--) {
+                it.next();
+            }
+            while (it.hasNext()) {
+                page.add(new ScoreRecord(e.getKey(), it.next()));
+                if (page.size() == count) {
+                    return page;
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * return all the records as a map from the highest score to the names of the users who reach
+     * it, which cannot be changed
+     * @return
+     */
+    public Map<Integer, SortedSet<String>> asMap() {
+        return Collections.unmodifiableMap(records);
+    }
+}
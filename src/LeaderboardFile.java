@@ -0,0 +1,235 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * LeaderboardFile reads and writes the records of a Leaderboard in two formats:
+ * 1. the text format, which has a line "int string" for each record. It is parsed straight from
+ * the bytes of the file, one byte at a time, without any regex or split. A line is only taken if
+ * it has 1 to MAX_DIGITS digits, a single space, and a username of 1 to 10 letters, digits or
+ * underscores, which is exactly what ScoreRecorder.RECORD_REGEX describes. A line may end with
+ * "\r\n". The scores of the endless mode have no upper bound, so a score is kept as an int in
+ * both formats, and any score below MAX_SCORE can be written and read back.
+ * 2. the binary format, which is much smaller and needs no checking. It is written in this order:
+ * MAGIC, VERSION, the number of scores, the number of records, and then for each score from the
+ * highest: the score as an int, the number of names, and each name in alphabetical order as its
+ * length in a byte followed by its letters. A score that is not possible means the file is broken.
+ * Both formats are read through a memory map of the file, so the file is not copied into a
+ * buffer first. A file is read as binary if it starts with MAGIC, and is written as binary if its
+ * name ends with BINARY_EXTENSION.
+ * The main method converts a file from one format to the other.
+ * @author garychen
+ *
+ */
+public class LeaderboardFile {
+
+    public static final int MAGIC = 0x42424c42; // The first four bytes of a binary file, "BBLB"
+    public static final int VERSION = 1; // The version of the binary format
+    public static final String BINARY_EXTENSION = ".bbl"; // The end of the name of a binary file
+    public static final int MAX_SCORE = 1000000000; // The scores that cannot be kept start here,
+                                                    // which is below RankIndex.MAX_SCORE
+    public static final int MAX_DIGITS = 9; // The most number of digits of a score, so every
+                                            // score that can be written is below MAX_SCORE
+    public static final int MAX_NAME = 10; // The most number of letters of a username
+
+    /**
+     * A helper method that maps the whole given file into memory for reading
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    private static MappedByteBuffer map(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close(); // The map stays valid after the channel is closed
+        }
+    }
+
+    /**
+     * return whether the given file is written in the binary format by its name
+     * @param file
+     * @return
+     */
+    public static boolean isBinaryName(File file) {
+        return file.getName().endsWith(BINARY_EXTENSION);
+    }
+
+    /**
+     * Read the records in the given file into the given leaderboard in whichever format the file
+     * is in. If the file is being appended to, the last line of a text file is only read if it is
+     * complete.
+     * @param file
+     * @param into
+     * @param appended
+     * @throws IOException
+     */
+    public static void read(File file, Leaderboard into, boolean appended) throws IOException {
+        MappedByteBuffer buf = map(file);
+        if (buf.remaining() >= 4 && buf.getInt(0) == MAGIC) {
+            readBinary(buf, into);
+        } else {
+            readText(buf, into, appended);
+        }
+    }
+
+    /**
+     * A helper method that reads the records in the binary format
+     * @param buf
+     * @param into
+     * @throws IOException if the file is not in a known version, is cut short, or has a score
+     * that is not possible
+     */
+    private static void readBinary(ByteBuffer buf, Leaderboard into) throws IOException {
+        buf.getInt(); // MAGIC
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unknown version of the leaderboard file");
+        }
+        int scores = buf.getInt();
+        buf.getInt(); // The number of records, which is implied by the rest
+        byte[] name = new byte[MAX_NAME];
+        try {
+            for (int i = 0; i < scores; i++) {
+                int score = buf.getInt();
+                if (score < 0 || score >= MAX_SCORE) {
+                    throw new IOException("The leaderboard file has a score that is not possible");
+                }
+                int names = buf.getInt();
+                for (int j = 0; j < names; j++) {
+                    int length = buf.get();
+                    buf.get(name, 0, length);
+                    into.add(score, new String(name, 0, length, StandardCharsets.US_ASCII));
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("The leaderboard file is broken");
+        }
+    }
+
+    /**
+     * A helper method that returns whether the given byte can be in a username
+     * @param b
+     * @return
+     */
+    private static boolean isNameByte(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '_';
+    }
+
+    /**
+     * A helper method that reads the records in the text format. A line that is not in the right
+     * format is skipped.
+     * @param buf
+     * @param into
+     * @param appended
+     */
+    private static void readText(ByteBuffer buf, Leaderboard into, boolean appended) {
+        byte[] name = new byte[MAX_NAME];
+        int limit = buf.limit();
+        int i = buf.position();
+        while (i < limit) {
+            // Score
+            int score = 0;
+            int digits = 0;
+            int b = buf.get(i) & 0xFF;
+            while (b >= '0' && b <= '9' && i < limit) {
+                score = score * 10 + (b - '0');
+                digits++;
+                b = ++i < limit ? buf.get(i) & 0xFF : -1;
+            }
+            boolean valid = digits > 0 && digits <= MAX_DIGITS && b == ' ';
+            // Name
+            int length = 0;
+            if (valid) {
+                b = ++i < limit ? buf.get(i) & 0xFF : -1;
+                while (isNameByte(b)) {
+                    if (length < MAX_NAME) {
+                        name[length] = (byte) b;
+                    }
+                    length++;
+                    b = ++i < limit ? buf.get(i) & 0xFF : -1;
+                }
+                if (b == '\r') { // Windows line ending
+                    b = ++i < limit ? buf.get(i) & 0xFF : -1;
+                }
+                valid = length > 0 && length <= MAX_NAME
+                        && (b == '\n' || (b == -1 && !appended)); // The last line may be cut
+            }
+            if (valid && score < MAX_SCORE) {
+                into.add(score, new String(name, 0, length, StandardCharsets.US_ASCII));
+            }
+            // Skip to the next line
+            while (b != '\n' && i < limit) {
+                b = ++i < limit ? buf.get(i) & 0xFF : -1;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Write the given records into the given file in the binary format, and sync it to the disk
+     * if asked.
+     * @param file
+     * @param leaderboard
+     * @param sync
+     * @throws IOException
+     */
+    public static void writeBinary(File file, Leaderboard leaderboard, boolean sync)
+            throws IOException {
+        FileOutputStream fos = new FileOutputStream(file, false);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(leaderboard.getScoreCount());
+            out.writeInt(leaderboard.size());
+            for (Map.Entry<Integer, SortedSet<String>> e : leaderboard.asMap().entrySet()) {
+                out.writeInt(e.getKey());
+                out.writeInt(e.getValue().size());
+                for (String s : e.getValue()) {
+                    out.writeByte(s.length());
+                    out.writeBytes(s); // Usernames only have ASCII letters
+                }
+            }
+            out.flush();
+            if (sync) {
+                fos.getFD().sync();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Main method. It converts the records in the first file into the second file. The second file
+     * is written in the binary format if its name ends with BINARY_EXTENSION, and in the text
+     * format otherwise.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: LeaderboardFile <from> <to>");
+            return;
+        }
+        long start = System.nanoTime();
+        Leaderboard leaderboard = new Leaderboard();
+        read(new File(args[0]), leaderboard, false);
+        long read = System.nanoTime();
+        ScoreRecorder.writeScores(new File(args[1]), leaderboard, false);
+        long written = System.nanoTime();
+        System.out.println(String.format("%d records: read in %.1f ms, written in %.1f ms",
+                leaderboard.size(), (read - start) / 1e6, (written - read) / 1e6));
+    }
+}
@@ -0,0 +1,196 @@
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LevelCache keeps the levels that are loaded into the court recently, so that playing one of
+ * them again does not build anything again. A level is found by the content hash of its bricks,
+ * and for each level it keeps:
+ * 1. the field of bricks before any of them is broken, which is copied for each game so that it is
+ * ready to play right away. The field is also the collision index of the level, since the engine
+ * finds the bricks a circle hits by the slots of the grid.
+ * 2. the image of the bricks on the background, which is drawn at once instead of drawing each of
+ * the bricks again. Only the part of the field in the court is drawn.
+ * The levels are kept in the order they are used, and the one that is not used for the longest
+ * time is removed first whenever the memory used by the levels is more than the limit. The
+ * memory of a level is counted as the bytes of its image and its field.
+ * The cache can be used from any thread.
+ * @author garychen
+ *
+ */
+public class LevelCache {
+
+    private final long maxBytes; // The most number of bytes the levels can use
+    private final LinkedHashMap<Long, Level> levels; // The levels by their hash, from the least
+                                                     // recently used
+    private long bytes; // The number of bytes the levels use
+    private long hits; // The number of times a level is found
+    private long misses; // The number of times a level is not found
+    private long evictions; // The number of levels removed to keep under the limit
+
+    /**
+     * Level is a level kept in the cache: the field before any brick is broken, and the image of
+     * the bricks on the background.
+     * @author garychen
+     *
+     */
+    public static class Level {
+        private final BrickField field; // The bricks before any of them is broken
+        private final BufferedImage image; // The bricks drawn on the background
+        private final long bytes; // The number of bytes the level uses
+
+        /**
+         * The constructor takes in the field and the image of the level
+         * @param field
+         * @param image
+         */
+        private Level(BrickField field, BufferedImage image) {
+            this.field = field;
+            this.image = image;
+            int slots = field.getCols() * field.getRows();
+            this.bytes = (long) image.getWidth() * image.getHeight() * 4 + slots + slots / 8;
+        }
+
+        /*** GETTERS ******************************************************************************/
+        /**
+         * return a new copy of the bricks of the level, ready to be played
+         * @return
+         */
+        public BrickField newField() {
+            return field.copy();
+        }
+
+        /**
+         * return whether the given field has the same bricks as the level
+         * @param bf
+         * @return
+         */
+        public boolean matches(BrickField bf) {
+            return field.sameBricks(bf);
+        }
+
+        /**
+         * return the image of the bricks of the level on the background. It must not be drawn on.
+         * @return
+         */
+        public BufferedImage getImage() {
+            return image;
+        }
+    }
+
+    /**
+     * The constructor takes in the most number of bytes the levels can use
+     * @param maxBytes
+     */
+    public LevelCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.levels = new LinkedHashMap<Long, Level>(16, 0.75f, true); // Kept in the order used
+    }
+
+    /**
+     * return the level with the same bricks as the given field, or null if it is not kept. The
+     * level becomes the most recently used.
+     * @param bf
+     * @return
+     */
+    public synchronized Level get(BrickField bf) {
+        Level level = levels.get(bf.contentHash());
+        if (level != null && level.field.sameBricks(bf)) {
+            hits++;
+            return level;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Keep the given field as a level, with its image drawn to be compatible with the given
+     * graphics configuration if there is one. The field is copied, so it can still be played.
+     * Levels are removed from the least recently used until the levels fit the limit, but the new
+     * level is always kept.
+     * @param bf
+     * @param gc
+     * @return the level that is kept
+     */
+    public Level put(BrickField bf, GraphicsConfiguration gc) {
+        BrickField field = bf.copy();
+        // Only the part of the field in the court can be seen
+        int width = Math.min(field.getCols() * GameCourt.BRICK_WIDTH, GameCourt.COURT_WIDTH);
+        int height = Math.min(field.getRows() * GameCourt.BRICK_HEIGHT, GameCourt.COURT_HEIGHT);
+        BufferedImage image = gc != null ? gc.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics g = image.getGraphics();
+        g.setColor(GameCourt.COURT_COLOR);
+        g.fillRect(0, 0, width, height);
+        field.draw(g);
+        g.dispose();
+        Level level = new Level(field, image);
+        synchronized (this) { // Only drawn outside the lock
+            Level old = levels.put(field.contentHash(), level);
+            if (old != null) {
+                bytes -= old.bytes;
+            }
+            bytes += level.bytes;
+            Iterator<Map.Entry<Long, Level>> it = levels.entrySet().iterator();
+            while (bytes > maxBytes && levels.size() > 1) {
+                Level eldest = it.next().getValue();
+                it.remove();
+                bytes -= eldest.bytes;
+                evictions++;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Remove all the levels
+     */
+    public synchronized void clear() {
+        levels.clear();
+        bytes = 0;
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the number of levels kept
+     * @return
+     */
+    public synchronized int size() {
+        return levels.size();
+    }
+
+    /**
+     * return the number of bytes the levels use
+     * @return
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * return the number of times a level is found
+     * @return
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * return the number of times a level is not found
+     * @return
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * return the number of levels removed to keep under the limit
+     * @return
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,314 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * LevelPack is a file that holds many levels, so that the maps the user creates can be saved and
+ * shared. It is written in this order:
+ * 1. MAGIC, VERSION and the number of levels
+ * 2. the index, which is the position of each level in the file as a long
+ * 3. each level in the packed form of BrickField.writePacked, which is one bit for each slot plus
+ * the slot and code of each super power.
+ * The file is read through a memory map, and opening it only reads the header. A level is only
+ * read when it is asked for, by looking up its position in the index, so opening a pack of ten
+ * thousand levels takes no time and only the pages of the levels that are played are ever read
+ * from the disk. Nothing of a level is kept after it is read, so the memory used does not grow
+ * with the number of levels.
+ * A level is added by writing a new file next to the pack and moving it over the pack, so the
+ * pack is never half written. The levels that are already in the pack are copied as they are,
+ * from channel to channel without reading them. A pack can be at most MAX_SIZE bytes, so that it
+ * can be mapped.
+ * The main method writes a pack of random levels.
+ * @author garychen
+ *
+ */
+public class LevelPack {
+
+    public static final int MAGIC = 0x42424c50; // The first four bytes of a pack, "BBLP"
+    public static final int VERSION = 1; // The version of the format
+    public static final int HEADER_SIZE = 12; // The number of bytes before the index
+    public static final long MAX_SIZE = Integer.MAX_VALUE; // The most number of bytes of a pack,
+                                                           // which is the most that can be mapped
+
+    private final File file; // The pack
+    private final ByteBuffer buf; // The memory map of the whole pack
+    private final int count; // The number of levels
+
+    /**
+     * The constructor maps the given pack into memory and reads its header.
+     * @param file
+     * @throws IOException if the file is not a pack or is cut short
+     */
+    public LevelPack(File file) throws IOException {
+        this.file = file;
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > MAX_SIZE) {
+                throw new IOException("The level pack is too large");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.buf = map; // The map stays valid after the channel is closed
+        } finally {
+            channel.close();
+        }
+        this.count = checkHeader(buf, buf.limit());
+    }
+
+    /**
+     * A helper method that checks the header at the start of the given buffer for a pack of the
+     * given size, and returns the number of levels
+     * @param header
+     * @param size
+     * @return
+     * @throws IOException if it is not a pack, or the index does not fit in the pack
+     */
+    private static int checkHeader(ByteBuffer header, long size) throws IOException {
+        if (size < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a level pack");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unknown version of the level pack");
+        }
+        int count = header.getInt(8);
+        if (count < 0 || HEADER_SIZE + (long) count * 8 > size) {
+            throw new IOException("The level pack is broken");
+        }
+        return count;
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the pack file
+     * @return
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * return the number of levels in the pack
+     * @return
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * A helper method that returns the position of the given level in the file
+     * @param index
+     * @return
+     */
+    private long offset(int index) {
+        return buf.getLong(HEADER_SIZE + index * 8);
+    }
+
+    /**
+     * A helper method that returns the position where the levels start, which is right after the
+     * index
+     * @return
+     */
+    private int dataStart() {
+        return HEADER_SIZE + count * 8;
+    }
+
+    /**
+     * Read the level at the given index, counting from 0. Only the bytes of that level are read.
+     * @param index
+     * @return
+     * @throws IOException if the level is broken
+     */
+    public BrickField get(int index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("No such level: " + index);
+        }
+        long start = offset(index);
+        if (start < dataStart() || start >= buf.limit()) {
+            throw new IOException("The level pack is broken");
+        }
+        ByteBuffer level = buf.duplicate(); // Its own position, so levels can be read at once
+        level.position((int) start);
+        return BrickField.readPacked(level);
+    }
+
+    /*** WRITING **********************************************************************************/
+    /**
+     * Write the given levels into the given file as a pack, and sync it to the disk if asked.
+     * @param file
+     * @param levels
+     * @param sync
+     * @throws IOException if the pack would be larger than MAX_SIZE
+     */
+    public static void write(File file, List<BrickField> levels, boolean sync)
+            throws IOException {
+        long size = HEADER_SIZE + (long) levels.size() * 8;
+        for (BrickField bf : levels) {
+            size += bf.packedSize();
+        }
+        if (size > MAX_SIZE) {
+            throw new IOException("The level pack is too large");
+        }
+        FileOutputStream fos = new FileOutputStream(file, false);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(levels.size());
+            long position = HEADER_SIZE + (long) levels.size() * 8;
+            for (BrickField bf : levels) {
+                out.writeLong(position);
+                position += bf.packedSize();
+            }
+            for (BrickField bf : levels) {
+                bf.writePacked(out);
+            }
+            out.flush();
+            if (sync) {
+                fos.getFD().sync();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Add the given level to the end of the pack in the given file, or create a pack with only
+     * the level if there is no such file. It returns the index of the level in the pack.
+     * The old pack is read through a channel and not mapped, so nothing holds it open once the
+     * new pack is moved over it, which a mapped file would not allow on some systems.
+     * @param file
+     * @param level
+     * @return
+     * @throws IOException if the pack is broken or would be larger than MAX_SIZE
+     */
+    public static int append(File file, BrickField level) throws IOException {
+        if (!file.exists()) {
+            write(file, Collections.singletonList(level), true);
+            return 0;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        FileChannel old = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        int n;
+        try {
+            long size = old.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(old, header, 0);
+            n = checkHeader(header, size);
+            if (size + 8 + level.packedSize() > MAX_SIZE) {
+                throw new IOException("The level pack is too large");
+            }
+            ByteBuffer index = ByteBuffer.allocate(n * 8);
+            readFully(old, index, HEADER_SIZE);
+            FileOutputStream fos = new FileOutputStream(tmp, false);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(n + 1);
+                // Every level moves back by the one new place of the index
+                for (int i = 0; i < n; i++) {
+                    out.writeLong(index.getLong(i * 8) + 8);
+                }
+                out.writeLong(size + 8);
+                out.flush(); // The levels are copied straight into the file after the index
+                FileChannel to = fos.getChannel();
+                long start = HEADER_SIZE + (long) n * 8;
+                for (long done = 0; done < size - start; ) {
+                    done += old.transferTo(start + done, size - start - done, to);
+                }
+                level.writePacked(out);
+                out.flush();
+                fos.getFD().sync();
+            } finally {
+                out.close();
+            }
+        } finally {
+            old.close();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        return n;
+    }
+
+    /**
+     * A helper method that reads the channel from the given position until the buffer is full
+     * @param channel
+     * @param b
+     * @param position
+     * @throws IOException if the channel ends first
+     */
+    private static void readFully(FileChannel channel, ByteBuffer b, long position)
+            throws IOException {
+        while (b.hasRemaining()) {
+            int read = channel.read(b, position);
+            if (read < 0) {
+                throw new IOException("The level pack is broken");
+            }
+            position += read;
+        }
+        b.flip();
+    }
+
+    /**
+     * Create a level that covers the area above GameCourt.BRICK_LOWER_LIMIT, where each slot has
+     * a brick by a half chance and the brick has a super power by the same chance as in the game.
+     * @param random
+     * @return
+     */
+    public static BrickField randomLevel(Random random) {
+        BrickField bf = BrickField.forCourt();
+        SuperPower[] powers = SuperPower.values();
+        for (int i = 0; i < GameCourt.BRICK_LOWER_LIMIT / GameCourt.BRICK_HEIGHT; i++) {
+            for (int j = 0; j < bf.getCols(); j++) {
+                if (random.nextBoolean()) {
+                    int ran = random.nextInt(GameCourt.RANDOMSP);
+                    bf.set(j, i, ran < powers.length ? powers[ran] : null);
+                }
+            }
+        }
+        return bf;
+    }
+
+    /**
+     * Main method. It writes a pack of random levels. The arguments are the pack file, the number
+     * of levels, and optionally the seed.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: LevelPack <pack> <levels> [seed]");
+            return;
+        }
+        int n = Integer.parseInt(args[1]);
+        Random random = args.length > 2 ? new Random(Long.parseLong(args[2])) : new Random();
+        List<BrickField> levels = new ArrayList<BrickField>(n);
+        for (int i = 0; i < n; i++) {
+            levels.add(randomLevel(random));
+        }
+        File file = new File(args[0]);
+        write(file, levels, false);
+        if (n == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        LevelPack pack = new LevelPack(file);
+        long opened = System.nanoTime();
+        pack.get(pack.size() - 1);
+        long read = System.nanoTime();
+        System.out.println(String.format("%d levels, %d bytes: opened in %.3f ms, "
+                + "last level read in %.3f ms", pack.size(), file.length(),
+                (opened - start) / 1e6, (read - opened) / 1e6));
+    }
+}
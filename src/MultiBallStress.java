@@ -0,0 +1,134 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * MultiBallStress is a stress test of the GameEngine with a lot of circles in the court at the
+ * same time. It does not need a display.
+ * Starting from a small number of circles, it keeps doubling the number of circles and measures
+ * how long a tick takes. The circles that fall out of the court are replaced and the bricks are put
+ * back when most of them are broken, so that every tick has the same amount of work. At the end it
+ * reports the most circles that can still be ticked within a frame at 60 Hz.
+ * @author garychen
+ *
+ */
+public class MultiBallStress {
+
+    public static final int TARGET_RATE = 60; // The number of frames per second to sustain
+    public static final int START_BALLS = 256; // The number of circles in the first round
+    public static final int MAX_BALLS = 1 << 20; // The most number of circles to try
+    public static final int WARMUP_TICKS = 120; // The number of ticks before measuring
+    public static final int MEASURE_TICKS = 240; // The number of ticks to measure in each round
+    public static final long SEED = 120L; // The seed of the game and of the random positions of
+                                          // the circles, so that a run can be repeated
+
+    private final GameEngine engine; // The engine under test
+    private final Random random; // The random source of the positions of the circles
+
+    /**
+     * The constructor creates a new engine and launches the first circle.
+     */
+    public MultiBallStress() {
+        this.engine = new GameEngine(new Random(SEED));
+        this.random = new Random(SEED);
+        ensurePlaying();
+    }
+
+    /**
+     * A helper method that steps the engine until the circle is launched again, which is needed
+     * at the beginning and whenever all the circles fall out at once.
+     */
+    private void ensurePlaying() {
+        while (engine.getState() != GameState.PLAYING) {
+            if (engine.getState() == GameState.ENDING) {
+                engine.restart(true);
+            }
+            engine.step(engine.getState() == GameState.HALTING ? GameInput.LAUNCH
+                                                                : GameInput.NONE);
+        }
+    }
+
+    /**
+     * A helper method that adds circles at random places below the bricks until there are n of
+     * them, each moving in a random direction.
+     * @param n
+     */
+    private void topUp(int n) {
+        for (int i = engine.getBalls().size(); i < n; i++) {
+            int px = random.nextInt(GameCourt.COURT_WIDTH - GameCourt.CIRCLERADIUS);
+            int py = GameCourt.BRICK_LOWER_LIMIT + random.nextInt(GameCourt.PADDLE_Y
+                     - GameCourt.BRICK_LOWER_LIMIT - GameCourt.CIRCLERADIUS);
+            int vx = (1 + random.nextInt(5)) * (random.nextBoolean() ? 1 : -1);
+            int vy = -(1 + random.nextInt(4));
+            engine.addBall(px, py, vx, vy);
+        }
+    }
+
+    /**
+     * A helper method that puts all the default bricks back if more than half of them are broken
+     */
+    private void refillBricks() {
+        BrickField bricks = engine.getBricks();
+        int rows = GameCourt.BRICK_LOWER_LIMIT / GameCourt.BRICK_HEIGHT;
+        int cols = GameCourt.COURT_WIDTH / GameCourt.BRICK_WIDTH;
+        if (bricks.size() < rows * cols / 2) {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    bricks.set(j, i, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Run a round with n circles and return the average time of a tick in nanoseconds. Only the
+     * step of the engine is timed.
+     * @param n
+     * @return
+     */
+    public double measure(int n) {
+        long total = 0;
+        for (int t = 0; t < WARMUP_TICKS + MEASURE_TICKS; t++) {
+            ensurePlaying();
+            topUp(n);
+            refillBricks();
+            long start = System.nanoTime();
+            engine.step(GameInput.NONE);
+            long elapsed = System.nanoTime() - start;
+            if (t >= WARMUP_TICKS) {
+                total += elapsed;
+            }
+        }
+        return (double) total / MEASURE_TICKS;
+    }
+
+    /**
+     * return the circles that are in the court now
+     * @return
+     */
+    public List<Circle> getBalls() {
+        return engine.getBalls();
+    }
+
+    /**
+     * Main method. It doubles the number of circles until a tick no longer fits in a frame, and
+     * prints the time of a tick for each round. An optional argument sets the most circles to try.
+     * @param args
+     */
+    public static void main(String[] args) {
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : MAX_BALLS;
+        double budget = 1e9 / TARGET_RATE;
+        MultiBallStress stress = new MultiBallStress();
+        int sustained = 0;
+        for (int n = START_BALLS; n <= max; n *= 2) {
+            double nanos = stress.measure(n);
+            System.out.println(String.format("%8d balls: %10.1f us/tick, %6.1f ns/ball",
+                    n, nanos / 1000, nanos / n));
+            if (nanos > budget) {
+                break;
+            }
+            sustained = n;
+        }
+        System.out.println(String.format("Sustained %d balls per frame at %d Hz",
+                sustained, TARGET_RATE));
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * PaddleController is whatever plays the game in place of the user, such as the autopilot. Before
+ * each tick it looks at the game and gives the input the user would give, so the same controller
+ * can play a game shown in the GameCourt or a game without a display in the BatchRunner.
+ * A controller may remember things between ticks, so each game needs its own.
+ * @author garychen
+ *
+ */
+public interface PaddleController {
+    GameInput control(GameEngine engine);
+}
@@ -0,0 +1,171 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * RankIndex counts how many records there are of each score, so that the number of records above
+ * any score can be found in O(log n).
+ * The counts are kept in an order-statistic tree keyed by the score: a binary trie of the BITS
+ * bits of the score, from the highest bit. Each node holds the number of records in the scores
+ * below it, so both adding a record and counting the records up to a score only visit one node
+ * for each bit, and the kth lowest record is found by going down the tree the same way. Only the
+ * nodes on the way to a score that has a record are made, so the memory grows with the number of
+ * different scores, not with how high the scores are. A score that does not fit in BITS bits is
+ * refused.
+ * Records can be added from many threads at once without a lock. The counts are atomic numbers,
+ * and a new node is put in place with a compare-and-set, so two threads that add the first record
+ * of a score at the same time share the same node. A count read while records are added may miss
+ * the records that are not fully added yet.
+ * @author garychen
+ *
+ */
+public class RankIndex {
+
+    public static final int BITS = 30; // The number of bits of a score
+    public static final int MAX_SCORE = (1 << BITS) - 1; // The highest score that can be kept
+
+    private final Node root; // The node above all the scores
+    private final AtomicLong total; // The number of records
+
+    /**
+     * Node is a node of the tree: the number of records in the scores below it, and the node of
+     * each value of the next bit, which is null until a record below it is added.
+     * @author garychen
+     *
+     */
+    private static class Node {
+        private final AtomicLong count = new AtomicLong(); // The records below the node
+        private final AtomicReferenceArray<Node> children = new AtomicReferenceArray<Node>(2);
+                                                         // The nodes of the next bit being 0 and 1
+
+        /**
+         * return the node of the given value of the next bit, or null if there isn't one
+         * @param bit
+         * @return
+         */
+        private Node child(int bit) {
+            return children.get(bit);
+        }
+
+        /**
+         * return the node of the given value of the next bit, which is made if there isn't one
+         * @param bit
+         * @return
+         */
+        private Node childOrNew(int bit) {
+            Node child = children.get(bit);
+            if (child == null) {
+                Node made = new Node();
+                child = children.compareAndSet(bit, null, made) ? made : children.get(bit);
+            }
+            return child;
+        }
+
+        /**
+         * return the number of records in the scores below the given node, which is 0 if it is
+         * null
+         * @param node
+         * @return
+         */
+        private static long count(Node node) {
+            return node == null ? 0 : node.count.get();
+        }
+    }
+
+    /**
+     * The constructor creates an empty index.
+     */
+    public RankIndex() {
+        this.root = new Node();
+        this.total = new AtomicLong();
+    }
+
+    /**
+     * Add a record of the given score
+     * @param score
+     */
+    public void add(int score) {
+        if (score < 0 || score > MAX_SCORE) {
+            throw new IllegalArgumentException("Score out of range: " + score);
+        }
+        Node node = root;
+        node.count.incrementAndGet();
+        for (int bit = BITS - 1; bit >= 0; bit--) {
+            node = node.childOrNew((score >>> bit) & 1);
+            node.count.incrementAndGet();
+        }
+        total.incrementAndGet();
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the number of records
+     * @return
+     */
+    public long size() {
+        return total.get();
+    }
+
+    /**
+     * return the number of records with a score no higher than the given score
+     * @param score
+     * @return
+     */
+    public long countAtMost(int score) {
+        if (score < 0) {
+            return 0;
+        } else if (score >= MAX_SCORE) {
+            return Node.count(root);
+        }
+        long n = 0;
+        Node node = root;
+        for (int bit = BITS - 1; bit >= 0 && node != null; bit--) {
+            if (((score >>> bit) & 1) == 1) {
+                n += Node.count(node.child(0)); // All the scores with a 0 here are lower
+                node = node.child(1);
+            } else {
+                node = node.child(0);
+            }
+        }
+        return n + Node.count(node); // The records of the score itself
+    }
+
+    /**
+     * return the number of records with a score higher than the given score
+     * @param score
+     * @return
+     */
+    public long countAbove(int score) {
+        long n = total.get();
+        return score < 0 ? n : Math.max(n - countAtMost(score), 0);
+    }
+
+    /**
+     * return the lowest score that has at least k records at or below it, counting from 1. It is
+     * the score of the kth lowest record.
+     * @param k
+     * @return
+     */
+    public int lowest(long k) {
+        if (k < 1 || k > total.get()) {
+            throw new IllegalArgumentException("No such record: " + k);
+        }
+        int score = 0;
+        Node node = root;
+        for (int bit = BITS - 1; bit >= 0; bit--) {
+            Node low = node.child(0);
+            Node high = node.child(1);
+            if (low == null && high == null) {
+                break; // The record being added has not reached here yet
+            }
+            // A record being added may be counted above but not below yet
+            if (high == null || (low != null && k <= Node.count(low))) {
+                node = low;
+            } else {
+                k -= Node.count(low);
+                score |= 1 << bit;
+                node = high;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * ReplayPlayer reads a replay written by the ReplayRecorder and can bring a game to any of its
+ * ticks. To go to a tick, it finds the last keyframe at or before the tick in the index, restores
+ * the engine from it, and fast forwards the engine with the recorded inputs until it reaches the
+ * tick, jumping over the ticks where the circles only fly through the empty court. So going to
+ * any tick never takes more than the number of ticks between two keyframes, no matter how long
+ * the game is, and usually far less.
+ * @author garychen
+ *
+ */
+public class ReplayPlayer {
+
+    private static final GameInput[] INPUTS = GameInput.values(); // All the inputs
+
+    private final long seed; // The seed of the random source of the recorded engine
+    private final int ticks; // The number of ticks recorded
+    private final int[] keyframeTicks; // The tick of each keyframe
+    private final byte[][] keyframes; // The state of the game at each keyframe
+    private final byte[] inputs; // The inputs of each tick, four in a byte
+
+    /**
+     * The constructor reads the replay from the given file.
+     * @param file
+     * @throws IOException if the file cannot be read or is not a replay
+     */
+    public ReplayPlayer(File file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buf.getInt() != ReplayRecorder.MAGIC || buf.getInt() != ReplayRecorder.VERSION) {
+            throw new IOException("Not a replay file: " + file);
+        }
+        seed = buf.getLong();
+        buf.getInt(); // The interval, which is implied by the index
+        ticks = buf.getInt();
+        int count = buf.getInt();
+        keyframeTicks = new int[count];
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            keyframeTicks[i] = buf.getInt();
+            offsets[i] = buf.getInt();
+            lengths[i] = buf.getInt();
+        }
+        inputs = new byte[buf.getInt()];
+        buf.get(inputs);
+        int base = buf.position();
+        keyframes = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            keyframes[i] = Arrays.copyOfRange(buf.array(), base + offsets[i],
+                                              base + offsets[i] + lengths[i]);
+        }
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the seed of the random source of the recorded engine
+     * @return
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * return the number of ticks recorded
+     * @return
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * return the input of the given tick
+     * @param tick
+     * @return
+     */
+    public GameInput getInput(int tick) {
+        int bit = tick * ReplayRecorder.BITS_PER_INPUT;
+        return INPUTS[(inputs[bit / 8] >> (bit % 8)) & 3];
+    }
+
+    /**
+     * Return an engine that is at the given tick of the game, i.e. after the given number of ticks
+     * have been stepped.
+     * @param tick
+     * @return
+     * @throws IOException if a keyframe is broken
+     */
+    public GameEngine seek(int tick) throws IOException {
+        if (tick < 0 || tick > ticks) {
+            throw new IllegalArgumentException("Tick out of range: " + tick);
+        }
+        // The last keyframe at or before the tick
+        int k = Arrays.binarySearch(keyframeTicks, tick);
+        if (k < 0) {
+            k = -k - 2;
+        }
+        GameEngine engine = new GameEngine(new Random(seed));
+        engine.loadState(keyframes[k]);
+        int t = keyframeTicks[k];
+        while (t < tick) {
+            // The ticks with the same input are fast forwarded together
+            GameInput input = getInput(t);
+            int end = t + 1;
+            while (end < tick && getInput(end) == input) {
+                end++;
+            }
+            engine.fastForward(input, end - t);
+            t = end;
+        }
+        return engine;
+    }
+
+    /**
+     * Main method. Given a replay file and a tick, it prints the state of the game at that tick,
+     * or at the end of the game if no tick is given.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayPlayer <replay file> [tick]");
+            return;
+        }
+        ReplayPlayer player = new ReplayPlayer(new File(args[0]));
+        int tick = args.length > 1 ? Integer.parseInt(args[1]) : player.getTicks();
+        long start = System.nanoTime();
+        GameEngine engine = player.seek(tick);
+        long nanos = System.nanoTime() - start;
+        Circle c = engine.getCircle();
+        System.out.println(String.format("Tick %d of %d (seek took %.2f ms)", tick,
+                player.getTicks(), nanos / 1e6));
+        System.out.println(String.format("State %s, score %d, life %d, bricks %d, circles %d",
+                engine.getState(), engine.getScore(), engine.getLife(),
+                engine.getBricks().size(), engine.getBalls().size()));
+        System.out.println(String.format("Paddle at %d, circle at (%d, %d) moving (%d, %d)",
+                engine.getPaddle().getPx(), c.getPx(), c.getPy(), c.getVx(), c.getVy()));
+    }
+}
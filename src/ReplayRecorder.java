@@ -0,0 +1,187 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ReplayRecorder records a game so that it can be played again later by the ReplayPlayer.
+ * Since the GameEngine does exactly the same thing given the same state and the same input, a game
+ * only needs:
+ * 1. the seed of the random source and the state at the beginning, which includes the bricks
+ * 2. the input of every tick, which only takes 2 bits per tick
+ * To avoid playing the whole game again when looking at a tick near the end, the full state of the
+ * game is also saved as a keyframe every fixed number of ticks, and the file has an index of where
+ * each keyframe is.
+ * The file is written in this order:
+ * 1. the header: MAGIC, VERSION, the seed, the number of ticks between keyframes, the number of
+ * ticks, and the number of keyframes
+ * 2. the index: the tick, the offset from the beginning of the keyframes, and the length of each
+ * keyframe
+ * 3. the inputs: the number of bytes, and the inputs packed four in a byte
+ * 4. the keyframes, one after another
+ * A replay saved by the game is named after the time it is saved, as in "replay-<time>.bbr", and
+ * prune removes the oldest of them so that the folder does not grow without end.
+ * @author garychen
+ *
+ */
+public class ReplayRecorder {
+
+    public static final int MAGIC = 0x42425250; // The first four bytes of a replay file, "BBRP"
+    public static final int VERSION = 1; // The version of the format of the file
+    public static final int KEYFRAME_INTERVAL = 250; // The number of ticks between keyframes,
+                                                     // which is 10 seconds of a game
+    public static final int BITS_PER_INPUT = 2; // The number of bits to store the input of a tick
+
+    private final GameEngine engine; // The engine that is recorded
+    private final long seed; // The seed of the random source of the engine
+    private final int interval; // The number of ticks between keyframes
+    private final List<byte[]> keyframes; // The state of the game every interval ticks
+    private byte[] inputs; // The inputs of each tick, four in a byte
+    private int ticks; // The number of ticks recorded
+
+    /**
+     * The constructor takes the engine to record and the seed of its random source. The current
+     * state of the engine is saved as the first keyframe.
+     * @param seed
+     * @param engine
+     */
+    public ReplayRecorder(long seed, GameEngine engine) {
+        this(seed, engine, KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * The constructor takes the engine to record, the seed of its random source, and the number
+     * of ticks between keyframes.
+     * @param seed
+     * @param engine
+     * @param interval
+     */
+    public ReplayRecorder(long seed, GameEngine engine, int interval) {
+        this.engine = engine;
+        this.seed = seed;
+        this.interval = interval;
+        this.keyframes = new ArrayList<byte[]>();
+        this.keyframes.add(engine.saveState());
+        this.inputs = new byte[64];
+    }
+
+    /**
+     * return the number of ticks recorded
+     * @return
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Record the input of the next tick. It should be called right before the engine steps with
+     * the same input, so that a keyframe is the state of the game before the input of its tick.
+     * @param input
+     */
+    public void record(GameInput input) {
+        if (ticks > 0 && ticks % interval == 0) {
+            keyframes.add(engine.saveState());
+        }
+        int index = ticks * BITS_PER_INPUT / 8;
+        if (index == inputs.length) {
+            byte[] newInputs = new byte[inputs.length * 2];
+            System.arraycopy(inputs, 0, newInputs, 0, inputs.length);
+            inputs = newInputs;
+        }
+        int shift = (ticks * BITS_PER_INPUT) % 8;
+        inputs[index] |= (byte) (input.ordinal() << shift);
+        ticks++;
+    }
+
+    /**
+     * Write the replay into the given file. The folder of the file is created if it does not exist.
+     * @param file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            // Header
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeInt(interval);
+            out.writeInt(ticks);
+            out.writeInt(keyframes.size());
+
+            // Index
+            int offset = 0;
+            for (int i = 0; i < keyframes.size(); i++) {
+                out.writeInt(i * interval);
+                out.writeInt(offset);
+                out.writeInt(keyframes.get(i).length);
+                offset += keyframes.get(i).length;
+            }
+
+            // Inputs
+            int length = (ticks * BITS_PER_INPUT + 7) / 8;
+            out.writeInt(length);
+            out.write(inputs, 0, length);
+
+            // Keyframes
+            for (byte[] k : keyframes) {
+                out.write(k);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Delete the oldest replays in the given folder, which are named "replay-<time>.bbr", until at
+     * most the given number of them are left. It returns the number of replays deleted.
+     * @param dir
+     * @param keep
+     * @return
+     */
+    public static int prune(File dir, int keep) {
+        File[] replays = dir.listFiles(new FilenameFilter() {
+            public boolean accept(File d, String name) {
+                return name.matches("replay-\\d+\\.bbr");
+            }
+        });
+        if (replays == null || replays.length <= keep) {
+            return 0;
+        }
+        Arrays.sort(replays, new Comparator<File>() {
+            public int compare(File a, File b) {
+                return Long.compare(savedAt(a), savedAt(b));
+            }
+        });
+        int deleted = 0;
+        for (int i = 0; i < replays.length - Math.max(keep, 0); i++) {
+            if (replays[i].delete()) {
+                deleted++;
+            } else {
+                System.err.println("Failed to delete the replay " + replays[i]);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * A helper method that returns the time in the name of a replay
+     * @param replay
+     * @return
+     */
+    private static long savedAt(File replay) {
+        String name = replay.getName();
+        return Long.parseLong(name.substring("replay-".length(), name.length() - ".bbr".length()));
+    }
+}
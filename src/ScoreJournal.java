@@ -0,0 +1,373 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ScoreJournal appends every new record to a journal next to the records file as soon as the game
+ * ends, so a crash loses at most the records that are not written yet instead of all the records of
+ * the session. The journal has the same "int string" lines as the records file.
+ * Records can be appended from many threads at once. Appending only puts the record in a queue,
+ * and a single writer thread owns the journal: it takes every record that is waiting, up to 
+ * BATCH_SIZE of them, writes them all at once, and then syncs the journal to the disk if it is 
+ * asked for. While the writer is syncing, more records pile up in the queue, so the busier the
+ * games are, the more records share a single write and sync. flush waits until everything 
+ * appended before it is written.
+ * To keep reading the records fast however long the game is played, the journal is compacted
+ * into the records file on a background thread once it has COMPACT_RECORDS records:
+ * 1. the writer renames the journal to the compacting file and starts a new journal
+ * 2. the records file and the compacting file are read and written into a temporary file, which
+ * is synced and then moved over the records file
+ * 3. the compacting file is deleted
+ * If the game stops in the middle, the compacting file is still there and is merged when the
+ * journal is opened next time. Reading a record twice does no harm, since the Leaderboard only
+ * keeps a user once for each score.
+ * A merge never loses a record: if the records file is there but cannot be read, the merge stops
+ * and the compacting file is kept, and the next compaction appends the journal to it instead of
+ * replacing it.
+ * @author garychen
+ *
+ */
+public class ScoreJournal {
+
+    public static final String JOURNAL_SUFFIX = ".journal"; // The end of the name of the journal
+    public static final String COMPACTING_SUFFIX = ".compacting"; // The end of the name of the
+                                                                  // journal being compacted
+    public static final int BATCH_SIZE = 4096; // The most number of records in a single write
+    public static final int COMPACT_RECORDS = 10000; // The number of records in the journal that
+                                                     // starts a compaction
+    private static final ScoreRecord COMPACT = new ScoreRecord(-1, "compact"); // Asks the writer
+                                                                              // to check if the
+                                                                              // journal is long
+    private static final ScoreRecord CLOSE = new ScoreRecord(-1, "close"); // Asks the writer to
+                                                                          // stop
+
+    private final File snapshot; // The records file
+    private final File journalFile; // The journal
+    private final File compactingFile; // The journal that is being compacted
+    private final boolean fsync; // Whether every write is synced to the disk
+    private final BlockingQueue<ScoreRecord> queue; // The records waiting to be written
+    private final AtomicLong submitted; // The number of entries put in the queue
+    private final Object commitLock = new Object(); // The lock waited on for a write to finish
+    private long committed; // The number of entries taken from the queue and written
+    private final Thread writer; // The thread that writes the journal
+    private final ExecutorService compactor; // The thread that merges the compacting file
+    private FileChannel channel; // The journal opened for appending, only used by the writer
+    private int journalRecords; // The number of records in the journal, only used by the writer
+    private volatile boolean compacting; // Whether a compaction is running
+    private volatile boolean closed; // Whether the journal is closed
+
+    /**
+     * The constructor takes in the records file and whether every write is synced to the disk.
+     * It finishes a compaction that did not finish last time, opens the journal for appending, and
+     * starts the writer thread. A line at the end of the journal that was only written partly is 
+     * cut off.
+     * @param snapshot
+     * @param fsync
+     * @throws IOException
+     */
+    public ScoreJournal(File snapshot, boolean fsync) throws IOException {
+        this.snapshot = snapshot;
+        this.journalFile = new File(snapshot.getPath() + JOURNAL_SUFFIX);
+        this.compactingFile = new File(snapshot.getPath() + COMPACTING_SUFFIX);
+        this.fsync = fsync;
+        this.queue = new LinkedBlockingQueue<ScoreRecord>();
+        this.submitted = new AtomicLong();
+        this.compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ScoreJournal-compactor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        if (compactingFile.exists()) {
+            try {
+                merge(); // Left over from last time
+            } catch (IOException e) {
+                System.err.println("Failed to compact the journal, it is kept for next time");
+            }
+        }
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+        cutPartialLine(channel);
+        channel.position(channel.size());
+        journalRecords = countLines();
+        this.writer = new Thread(new Runnable() {
+            public void run() {
+                write();
+            }
+        }, "ScoreJournal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * A helper method that cuts off the end of the given journal after the last new line
+     * @param channel
+     * @throws IOException
+     */
+    private static void cutPartialLine(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer b = ByteBuffer.allocate(1);
+        long end = size;
+        while (end > 0) {
+            b.clear();
+            channel.read(b, end - 1);
+            if (b.get(0) == '\n') {
+                break;
+            }
+            end--;
+        }
+        if (end < size) {
+            channel.truncate(end);
+        }
+    }
+
+    /**
+     * A helper method that counts the lines in the journal
+     * @return
+     * @throws IOException
+     */
+    private int countLines() throws IOException {
+        int n = 0;
+        ByteBuffer b = ByteBuffer.allocate(8192);
+        long position = 0;
+        while (channel.read(b, position) > 0) {
+            b.flip();
+            position += b.remaining();
+            while (b.hasRemaining()) {
+                if (b.get() == '\n') {
+                    n++;
+                }
+            }
+            b.clear();
+        }
+        return n;
+    }
+
+    /**
+     * Read the records in the journal into the given records. It should be called after the 
+     * records file is read. A compacting file that could not be merged is read as well, so its
+     * records are still counted until a merge succeeds. If the journal is already long, it is
+     * compacted afterwards so that it is shorter next time.
+     * @param into
+     */
+    public void readInto(Leaderboard into) {
+        if (compactingFile.exists()) {
+            ScoreRecorder.readScores(compactingFile, into, true);
+        }
+        ScoreRecorder.readScores(journalFile, into, true);
+        submit(COMPACT);
+    }
+
+    /**
+     * A helper method that puts an entry in the queue of the writer
+     * @param r
+     */
+    private void submit(ScoreRecord r) {
+        submitted.incrementAndGet();
+        queue.add(r);
+    }
+
+    /**
+     * Append a record to the journal. It only waits for the queue, not for the record to be
+     * written. It can be called from any thread.
+     * @param score
+     * @param name
+     */
+    public void append(int score, String name) {
+        if (closed) {
+            System.err.println("The journal is closed");
+            return;
+        }
+        submit(new ScoreRecord(score, name));
+    }
+
+    /**
+     * Wait until every record appended before is written, and synced if asked.
+     */
+    public void flush() {
+        long target = submitted.get();
+        synchronized (commitLock) {
+            while (committed < target && writer.isAlive()) {
+                try {
+                    commitLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A helper method that is the loop of the writer thread. Each time it takes all the records
+     * waiting in the queue and writes them in one write and one sync, until it is asked to stop.
+     */
+    private void write() {
+        List<ScoreRecord> batch = new ArrayList<ScoreRecord>();
+        StringBuilder text = new StringBuilder();
+        boolean stop = false;
+        while (!stop) {
+            batch.clear();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            text.setLength(0);
+            int n = 0;
+            for (ScoreRecord r : batch) {
+                if (r == CLOSE) {
+                    stop = true;
+                } else if (r != COMPACT) {
+                    text.append(r.getScore()).append(' ').append(r.getName()).append('\n');
+                    n++;
+                }
+            }
+            try {
+                if (n > 0) {
+                    byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                    ByteBuffer b = ByteBuffer.wrap(bytes);
+                    while (b.hasRemaining()) {
+                        channel.write(b);
+                    }
+                    if (fsync) {
+                        channel.force(false);
+                    }
+                    journalRecords += n;
+                }
+                if (!stop && journalRecords >= COMPACT_RECORDS && !compacting) {
+                    compact();
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to write the journal");
+            }
+            synchronized (commitLock) {
+                committed += batch.size();
+                commitLock.notifyAll();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close the journal");
+        }
+    }
+
+    /**
+     * A helper method that starts a compaction on the writer thread: the journal is renamed to 
+     * the compacting file and a new journal is started right away, and the compacting file is 
+     * merged into the records file on the compactor thread. If a compacting file is left from a
+     * merge that failed, the journal is appended to it instead, so its records are still merged.
+     * @throws IOException
+     */
+    private void compact() throws IOException {
+        compacting = true;
+        channel.close();
+        if (compactingFile.exists()) {
+            appendCompacting();
+        } else {
+            Files.move(journalFile.toPath(), compactingFile.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journalRecords = 0;
+        compactor.execute(new Runnable() {
+            public void run() {
+                try {
+                    merge();
+                } catch (IOException e) {
+                    System.err.println("Failed to compact the journal");
+                }
+                compacting = false;
+                if (!closed) {
+                    submit(COMPACT); // The journal may have grown long again in the meantime
+                }
+            }
+        });
+    }
+
+    /**
+     * A helper method that appends the journal to the compacting file and then deletes the
+     * journal. A line at the end of the compacting file that was only written partly is cut off
+     * first. If the game stops before the journal is deleted, its records are only read twice.
+     * @throws IOException
+     */
+    private void appendCompacting() throws IOException {
+        FileChannel from = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ);
+        FileChannel to = FileChannel.open(compactingFile.toPath(), StandardOpenOption.READ,
+                                          StandardOpenOption.WRITE);
+        try {
+            cutPartialLine(to);
+            long position = to.size();
+            long size = from.size();
+            for (long done = 0; done < size; ) {
+                done += from.transferTo(done, size - done, to.position(position + done));
+            }
+            to.force(false);
+        } finally {
+            from.close();
+            to.close();
+        }
+        Files.delete(journalFile.toPath());
+    }
+
+    /**
+     * A helper method that merges the compacting file into the records file. The new records file
+     * is written next to it in the format of the records file and then moved over it, so the 
+     * records file is never half written.
+     * @throws IOException if the records file is there but cannot be read, in which case nothing
+     * is changed
+     */
+    private void merge() throws IOException {
+        Leaderboard merged = new Leaderboard();
+        if (snapshot.exists() && !ScoreRecorder.readScores(snapshot, merged, false)) {
+            throw new IOException("The records file cannot be read");
+        }
+        ScoreRecorder.readScores(compactingFile, merged, true);
+        File tmp = new File(snapshot.getPath() + ".tmp");
+        ScoreRecorder.writeScores(tmp, merged, true, LeaderboardFile.isBinaryName(snapshot));
+        Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(compactingFile.toPath());
+    }
+
+    /**
+     * Write all the waiting records, stop the writer, wait for a running compaction to finish, and
+     * close the journal. Nothing can be appended after it is closed.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        submit(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
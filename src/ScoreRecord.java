@@ -0,0 +1,42 @@
+/**
+ * ScoreRecord is a single record of the leaderboard: a user and the score the user reaches.
+ * @author garychen
+ *
+ */
+public class ScoreRecord {
+
+    private final int score; // The score reached
+    private final String name; // The name of the user
+
+    /**
+     * The constructor takes in the score and the name of the user.
+     * @param score
+     * @param name
+     */
+    public ScoreRecord(int score, String name) {
+        this.score = score;
+        this.name = name;
+    }
+
+    /*** GETTERS **********************************************************************************/
+    /**
+     * return the score reached
+     * @return
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * return the name of the user
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return score + " " + name;
+    }
+}
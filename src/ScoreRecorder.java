@@ -1,152 +1,156 @@
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.nio.file.Paths;
-import java.util.Collections;
 import java.util.IllegalFormatException;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.SortedSet;
 
 /**
  * ScoreRecorder is the class implementing I/O. It has a responsibility both as:
- * 1. a reader, which will read the scores and the score keeper of each of the scores to a 
- * Map<Integer, List<String>> data structure. The reason why we need List<String> instead of 
- * Set<String> is because we want the name to be listed in alphabetical order. Also, we have a 
- * ranking that is a List of integer based on the keyset of the map. Ranking is sorted in descending
- * order
- * 2. a writer, which will take in a map and will write it into the file.
+ * 1. a reader, which will read the scores and the score keeper of each of the scores into a 
+ * Leaderboard, which keeps the scores from the highest to the lowest and the names of each score in
+ * alphabetical order as they are added, so nothing needs to be sorted after reading.
+ * 2. a writer, which will take in a Leaderboard and will write it into the file.
  * @author garychen
  *
  */
 public class ScoreRecorder {
 
-    // The format for each of the record, which is in the format of "int string" for a line
-    // The format allows at most four digit of number because the maximum score possible in this 
-    // game is 40 * 20 * 10 = 8000
-    public static final String RECORD_REGEX = "^[0-9]{1,4}\\s" + GameCourt.USERNAME_REGEX + "$";
+    // The format for each of the record, which is in the format of "int string" for a line, with
+    // a single space in between.
+    // The format allows at most LeaderboardFile.MAX_DIGITS digits, since the endless mode has no
+    // highest score, and a score must be below LeaderboardFile.MAX_SCORE to be recorded at all.
+    // The LeaderboardFile checks the same format without the regex.
+    public static final String RECORD_REGEX = "^[0-9]{1," + LeaderboardFile.MAX_DIGITS + "} "
+                                              + GameCourt.USERNAME_REGEX + "$";
     private String filePath; // the path of the file in string
-    private BufferedReader br;
-    // An integer list representing the ranking of all the scores from largest to the smallest
-    private List<Integer> ranking;
-    // records contains the scores as the key and a list of user name sorted in alphabetical order 
-    // as the entry
-    private Map<Integer, List<String>> records;
+    // records contains all the scores and the user names who reach each of them
+    private Leaderboard records;
+    private ScoreJournal journal; // The journal that new records are appended to, null if the
+                                  // records are only written when the game is closed
     
     /**
-     * The constructor will take in the path of the file storing and will generate a bufferedreader
-     * that will read all the scores
+     * The constructor will take in the path of the file storing and will read all the scores.
+     * The records will be written back all at once when the game is closed.
      * @param filePath
      */
     public ScoreRecorder(String filePath) {
+        this(filePath, false, false);
+    }
+    
+    /**
+     * The constructor will take in the path of the file storing, whether new records are appended
+     * to a journal right away, and whether the journal is synced to the disk after each write.
+     * With a journal, the scores are read from the file and then from the journal, which holds the
+     * records appended since the journal was last compacted into the file.
+     * @param filePath
+     * @param journaled
+     * @param fsync
+     */
+    public ScoreRecorder(String filePath, boolean journaled, boolean fsync) {
         this.filePath = filePath;
-        ranking = new LinkedList<Integer>();
-        records = new TreeMap<Integer, List<String>>();
-        try {
-            br = new BufferedReader(new FileReader(filePath));
-            readScores();
-        } catch (NullPointerException | FileNotFoundException e) {
+        records = new Leaderboard();
+        File file = new File(filePath);
+        if (journaled) {
+            try {
+                // Opened first, since it may finish merging into the file from last time
+                journal = new ScoreJournal(file, fsync);
+            } catch (IOException e) {
+                System.err.println("Failed to open the journal, records are written on close");
+            }
+        }
+        if (!readScores(file, records, false)) {
             System.err.println("Failed to read file");
         }
+        if (journal != null) {
+            journal.readInto(records);
+        }
     }
     
     /**
-     * A helper method which will read all the scores into both ranking and records
+     * A helper method which will read all the scores in the given file into the given records,
+     * using the LeaderboardFile, which reads both the text and the binary format.
+     * If the file is being appended to, the last line is only read if it is complete, since the 
+     * game may have stopped in the middle of writing it. It returns false if the file cannot be 
+     * read.
+     * @param file
+     * @param into
+     * @param appended
+     * @return
      */
-    private void readScores() {
-        // Indicator variable
-        String next;
+    static boolean readScores(File file, Leaderboard into, boolean appended) {
+        if (!file.exists()) {
+            return false;
+        }
         try {
-            next = br.readLine();
-            while (next != null) {
-                parseToRecord(next); // Parse into an acceptable format
-                next = br.readLine();
-            }
-            br.close();
-            ranking.addAll(records.keySet()); // Add all the integers into ranking
-            // Sort the ranking from highest to lowest
-            Collections.sort(ranking, Collections.reverseOrder());
+            LeaderboardFile.read(file, into, appended);
+            return true;
         } catch (IOException e) {
             System.err.println("Unable to read the file");
+            return false;
         }
-
     }
-
+    
     /**
-     * A helper method which will parse the record, which is given as a string, to the map
-     * If the format of the record is not valid,the helper method will abandone the record.
-     * @param line
+     * a getter method that will return the records that are read. The leaderboard belongs to the
+     * caller from then on.
+     * @return
      */
-    private void parseToRecord(String line) {
-        // Check if the format is correct. It requires both following a Record_REGEX and to check if
-        // the string only has int
-        if (line.matches(RECORD_REGEX) && !line.matches("-\\d+")) { 
-            String[] sl = line.split(" "); // split the string into supposedly array of length 2
-            try {
-                int score = Integer.parseInt(sl[0]);
-                if (score < 8000) { // If the score is over the limit, which is not possible
-                    if (records.containsKey(score)) {
-                        List<String> l = records.get(score);
-                        l.add(sl[1]);
-                        Collections.sort(l); // Sort the name in alphabetical order
-                    } else {
-                        List<String> l = new LinkedList<String>();
-                        l.add(sl[1]);
-                        records.put(score, l); // Create and store a new list with only one element
-                    }
-                }
-            } catch (NumberFormatException e) {
-                System.err.println("Wrong format");
-            }
-        }
+    public Leaderboard getRecords() {
+        return records;
     }
     
     /**
-     * a getter method that will return a copy of the records
+     * Submit a record of a finished game. It is added to the records, and with a journal, it is 
+     * queued to be appended to the journal, otherwise it will be written with the rest of the 
+     * records when the game is closed. It returns whether the top scores are changed by the 
+     * record.
+     * A score that cannot be kept, from LeaderboardFile.MAX_SCORE on, is refused before it is
+     * journaled, so it is never written and then lost when the records are read back.
+     * Many games can submit at the same time from different threads, since neither the records
+     * nor the journal need a lock to add a record.
+     * @param score
+     * @param name
      * @return
      */
-    public Map<Integer, List<String>> getRecords() {
-        Map<Integer, List<String>> result = new TreeMap<Integer, List<String>>();
-        for (Integer i: records.keySet()) {
-            result.put((int) i, new LinkedList<String>(records.get(i)));
+    public boolean submit(int score, String name) {
+        if (score < 0 || score >= LeaderboardFile.MAX_SCORE) {
+            System.err.println("The score cannot be recorded: " + score);
+            return false;
+        }
+        boolean topChanged = records.add(score, name);
+        if (journal != null) {
+            journal.append(score, name);
         }
-        result.putAll(records);
-        return result;
+        return topChanged;
     }
     
     /**
-     * A getter method that will return a copy of the ranking in sorted order
-     * @return
+     * Wait until every record submitted before is written to the journal, if there is one
      */
-    public List<Integer> gerRanking() {
-        return new LinkedList<Integer>(ranking);
+    public void flush() {
+        if (journal != null) {
+            journal.flush();
+        }
     }
     
     /**
-     * A method that takes in a records like data structure and will write it into the file in the
-     * form "int string"
-     * @param r is a data structure like the records defined above
+     * A method that takes in a leaderboard and will write it into the file in the form 
+     * "int string", from the highest score. With a journal, every record is already in the 
+     * journal, so the journal is only flushed and closed instead.
+     * @param leaderboard
      */
-    public void writeRecords(Map<Integer, List<String>> r) {
+    public void writeRecords(Leaderboard leaderboard) {
+        if (journal != null) {
+            journal.close();
+            return;
+        }
         File file = Paths.get(filePath).toFile();
         try {
-            // Overwrite the file
-            BufferedWriter bw = new BufferedWriter(new FileWriter(file, false));
-            for (Integer i : r.keySet()) {
-                if (i != null) {
-                    for (String s : r.get(i)) {
-                        if (s != null) {
-                            bw.write(String.format("%d %s\n", i, s)); // Write in specific format
-                        }
-                    }
-                }
-            }
-            bw.close();
+            writeScores(file, leaderboard, false); // Overwrite the file
         } catch (IOException e) {
             System.err.println("IOException");
         } catch (IllegalFormatException e) {
@@ -155,4 +159,50 @@ public class ScoreRecorder {
             System.err.println("Map is null");
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * A helper method that writes the given records into the given file in the form 
+     * "int string", from the highest score, and syncs the file to the disk if asked. A file whose
+     * name ends with LeaderboardFile.BINARY_EXTENSION is written in the binary format instead.
+     * @param file
+     * @param leaderboard
+     * @param sync
+     * @throws IOException
+     */
+    static void writeScores(File file, Leaderboard leaderboard, boolean sync) throws IOException {
+        writeScores(file, leaderboard, sync, LeaderboardFile.isBinaryName(file));
+    }
+    
+    /**
+     * A helper method that writes the given records into the given file in the given format, 
+     * whatever the name of the file is, e.g. for a temporary file that will be moved over a file 
+     * of that format.
+     * @param file
+     * @param leaderboard
+     * @param sync
+     * @param binary
+     * @throws IOException
+     */
+    static void writeScores(File file, Leaderboard leaderboard, boolean sync, boolean binary) 
+            throws IOException {
+        if (binary) {
+            LeaderboardFile.writeBinary(file, leaderboard, sync);
+            return;
+        }
+        FileOutputStream out = new FileOutputStream(file, false);
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out));
+        try {
+            for (Map.Entry<Integer, SortedSet<String>> e : leaderboard.asMap().entrySet()) {
+                for (String s : e.getValue()) {
+                    bw.write(String.format("%d %s\n", e.getKey(), s)); // Write in specific format
+                }
+            }
+            bw.flush();
+            if (sync) {
+                out.getFD().sync();
+            }
+        } finally {
+            bw.close();
+        }
+    }
+}
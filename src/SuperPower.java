@@ -1,11 +1,12 @@
 /**
- * SuperPower is a enum that currently only have two values:
+ * SuperPower is a enum that currently only have three values:
  * 1. Longer Paddle, which represents that the paddle will get longer
  * 2. Shorter Paddle, exactly the opposite of the what the Longer Paddle represents.
- * 3. null state, which happnes when the brick represents no super power.
+ * 3. Multi Ball, which represents that more circles will come out of the brick.
+ * 4. null state, which happnes when the brick represents no super power.
  * @author garychen
  *
  */
 public enum SuperPower {
-    LONGERPADDLE, SHORTERPADDLE;
+    LONGERPADDLE, SHORTERPADDLE, MULTIBALL;
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+import java.util.List;
+
+/**
+ * TimeOfImpact works out how many ticks the game can go on before anything but plain moving
+ * happens, so that the GameEngine can jump over all of those ticks at once instead of stepping
+ * them one by one. A tick is plain if every circle moves by its velocity without:
+ * 1. reaching a side wall or the ceiling, where it would be stopped and turn around
+ * 2. falling out of the bottom of the court
+ * 3. coming near the paddle
+ * 4. coming near a row that still has a brick, where the BrickField starts to check it
+ * and, in the endless mode, without the field moving down.
+ * Each of them is solved from the position and the velocity of the circle, so the number of ticks
+ * is found at once, however far away the next impact is. The paddle can be jumped over too, since
+ * it moves by its velocity and stops at the walls, so where it ends up only depends on how far it
+ * goes.
+ * The checks are a little wider than the real collision checks, so a jump never skips a tick where
+ * something would happen, and jumping gives exactly the same game as stepping, which replays
+ * depend on. In return, no tick is jumped while a circle is among the rows that have bricks, even
+ * if there is no brick near it.
+ * @author garychen
+ *
+ */
+public class TimeOfImpact {
+
+    public static final int MARGIN = 2; // The extra distance kept from the paddle
+
+    /**
+     * return the number of plain ticks from now for all the circles, which is the smallest number
+     * of plain ticks of any of them, or Integer.MAX_VALUE if nothing will ever happen
+     * @param balls
+     * @param paddle
+     * @param bricks
+     * @return
+     */
+    public static int plainTicks(List<Circle> balls, Paddle paddle, BrickField bricks) {
+        int top = Integer.MAX_VALUE; // No brick gets in the way if there isn't any
+        int bottom = Integer.MIN_VALUE;
+        if (!bricks.isEmpty()) {
+            top = bricks.getPy(bricks.nextAlive(0));
+            bottom = bricks.getPy(bricks.lastAlive()) + GameCourt.BRICK_HEIGHT;
+        }
+        int n = Integer.MAX_VALUE;
+        for (int i = 0; i < balls.size() && n > 0; i++) {
+            n = Math.min(n, plainTicks(balls.get(i), paddle, top, bottom));
+        }
+        return n;
+    }
+
+    /**
+     * return the number of plain ticks from now for the given circle
+     * @param c
+     * @param paddle
+     * @param brickTop the y-value of the highest row that has a brick
+     * @param brickBottom the y-value right below the lowest row that has a brick
+     * @return
+     */
+    public static int plainTicks(Circle c, Paddle paddle, int brickTop, int brickBottom) {
+        int px = c.getPx();
+        int py = c.getPy();
+        int vx = c.getVx();
+        int vy = c.getVy();
+        // The side walls, which are reached at 0 and at the court width
+        int n = within(px, vx, 1, c.getCourtWidth() - 1);
+        // The ceiling, which is reached at 0, and the bottom of the court, where it falls out
+        n = Math.min(n, within(py, vy, 1, GameCourt.COURT_HEIGHT - 1));
+        // The paddle, which the circle is far from as long as it stays above it
+        int above = paddle.getPy() - c.getHeight() - MARGIN;
+        int below = paddle.getPy() + paddle.getHeight() + MARGIN;
+        if (py <= above) {
+            n = Math.min(n, within(py, vy, Integer.MIN_VALUE, above));
+        } else if (py < below || vy < 0) {
+            return 0; // Next to the paddle, or may come back up to it
+        }
+        // The bricks, which are checked from one pixel above the circle to its bottom
+        if (py + c.getHeight() < brickTop) {
+            return Math.min(n, within(py, vy, Integer.MIN_VALUE, brickTop - c.getHeight() - 1));
+        } else if (py - 1 >= brickBottom) {
+            return Math.min(n, within(py, vy, brickBottom + 1, Integer.MAX_VALUE));
+        }
+        return 0; // Among the rows that have bricks
+    }
+
+    /**
+     * A helper method that returns the number of ticks a value moving by the given velocity stays
+     * between the given bounds, counting only the ticks after now. It returns 0 if the value is
+     * not between them now.
+     * @param p
+     * @param v
+     * @param min
+     * @param max
+     * @return
+     */
+    private static int within(int p, int v, int min, int max) {
+        if (p < min || p > max) {
+            return 0;
+        }
+        long room = v > 0 ? (long) max - p : v < 0 ? (long) p - min : Long.MAX_VALUE;
+        if (v == 0) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min(room / Math.abs(v), Integer.MAX_VALUE);
+    }
+}